@@ -0,0 +1,90 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generate synthetic Markdown documents and documentation trees for the benchmarks.
+ * The generation is seeded so all the runs use the same corpus.
+ *
+ * @author Romain Gilles
+ */
+final class Corpus {
+
+    private static final String[] WORDS = {"maven", "plugin", "markdown", "document", "render", "page", "the",
+            "generate", "html", "template", "archive", "build", "of", "and", "parser", "option", "site", "with"};
+    private static final long SEED = 42;
+
+    private Corpus() {
+        throw new AssertionError("not for you!");
+    }
+
+    /**
+     * @param sections the number of second level sections of the document.
+     * @return a document that uses most of the Markdown syntax and the pegdown extensions.
+     */
+    static String document(int sections) {
+        return document(sections, new Random(SEED));
+    }
+
+    private static String document(int sections, Random random) {
+        StringBuilder document = new StringBuilder();
+        document.append("The ").append(words(random, 3)).append("\n===========\n\n");
+        paragraph(document, random);
+        for (int i = 0; i < sections; i++) {
+            document.append("## Section ").append(i).append(' ').append(words(random, 2)).append("\n\n");
+            paragraph(document, random);
+            document.append("* ").append(words(random, 4)).append('\n')
+                    .append("* *").append(words(random, 2)).append("* and **").append(words(random, 2)).append("**\n")
+                    .append("    1. ").append(words(random, 5)).append("\n\n");
+            document.append("```java\npublic void ").append(random.nextBoolean() ? "render" : "generate")
+                    .append("() {\n    return;\n}\n```\n\n");
+            document.append("| Name | Value |\n|------|-------|\n| ").append(words(random, 1)).append(" | ")
+                    .append(random.nextInt(1000)).append(" |\n\n");
+            document.append("> ").append(words(random, 12)).append("\n\n");
+            document.append("See [the ").append(words(random, 1)).append("](other.html#section-").append(i)
+                    .append(") or http://www.example.com/").append(words(random, 1)).append("\n\n");
+        }
+        return document.toString();
+    }
+
+    private static void paragraph(StringBuilder document, Random random) {
+        for (int line = 0; line < 4; line++) {
+            document.append(words(random, 10)).append(" `code` ").append(words(random, 4)).append('\n');
+        }
+        document.append('\n');
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    /**
+     * Create a documentation tree of {@code size} documents spread into sub directories,
+     * with one image every ten documents.
+     */
+    static void create(File directory, int size, int sections) throws IOException {
+        Random random = new Random(SEED);
+        byte[] image = new byte[16 * 1024];
+        random.nextBytes(image);
+        for (int i = 0; i < size; i++) {
+            File file = new File(directory, "part-" + (i % 10) + "/document-" + i + ".md");
+            Files.createParentDirs(file);
+            Files.write(document(sections, random), file, Charsets.UTF_8);
+            if (i % 10 == 0) {
+                Files.write(image, new File(file.getParentFile(), "image-" + i + ".png"));
+            }
+        }
+    }
+}
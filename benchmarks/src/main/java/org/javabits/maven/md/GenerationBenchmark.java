@@ -0,0 +1,76 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.plexus.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmark of the generate goal, generation and packaging, over a synthetic corpus.
+ * The incremental mode is disabled unless {@link #incremental} is set, so each invocation renders all the documents.
+ *
+ * @author Romain Gilles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GenerationBenchmark {
+
+    @Param({"100", "1000"})
+    public int corpusSize;
+
+    @Param({"5", "50"})
+    public int sections;
+
+    @Param({"true", "false"})
+    public boolean streamArchive;
+
+    @Param({"false"})
+    public boolean incremental;
+
+    @Param({"0"})
+    public int threads;
+
+    private File directory;
+    private MarkdownMojo mojo;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("md-benchmark").toFile();
+        File sources = new File(directory, "md");
+        Corpus.create(sources, corpusSize, sections);
+        mojo = Mojos.newMojo(sources, new File(directory, "target"));
+        Mojos.set(mojo, "streamArchive", streamArchive);
+        Mojos.set(mojo, "incremental", incremental);
+        Mojos.set(mojo, "threads", threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void generate() throws MojoExecutionException, MojoFailureException {
+        mojo.execute();
+    }
+}
@@ -0,0 +1,49 @@
+package org.javabits.maven.md;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the title extraction and of the destination path computation.
+ *
+ * @author Romain Gilles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownsBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int sections;
+
+    private String document;
+
+    @Setup
+    public void setUp() {
+        document = Corpus.document(sections);
+    }
+
+    @Benchmark
+    public String getTitle() {
+        return Markdowns.getTitle(document);
+    }
+
+    @Benchmark
+    public String getDestinationFilePath() {
+        return MarkdownMojo.getDestinationFilePath("user-guide/part-1/user-guide.md");
+    }
+}
@@ -0,0 +1,75 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pegdown.PegDownProcessor;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the Markdown transformation by each engine under the extension sets resolved by {@link MarkdownMojo#getOptions()}.
+ *
+ * @author Romain Gilles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * Comma separated extension names, empty for none.
+     */
+    @Param({"", "TABLES,FENCED_CODE_BLOCKS", "ALL"})
+    public String options;
+
+    @Param({"1", "10", "100"})
+    public int sections;
+
+    /**
+     * The {@link MarkdownRenderer.Engine} name.
+     */
+    @Param({"PEGDOWN", "COMMONMARK"})
+    public String engine;
+
+    private String document;
+    private char[] characters;
+    private PegDownProcessor pegDownProcessor;
+    private MarkdownRenderer renderer;
+
+    @Setup
+    public void setUp() throws MojoExecutionException {
+        document = Corpus.document(sections);
+        characters = document.toCharArray();
+        MarkdownMojo mojo = Mojos.newMojo(new File("."), new File("."));
+        if (!options.isEmpty()) {
+            Mojos.set(mojo, "options", options.split(","));
+        }
+        int extensions = mojo.getOptions();
+        pegDownProcessor = new PegDownProcessor(extensions);
+        renderer = MarkdownRenderer.Engine.valueOf(engine).newRenderer(extensions, "md", PegDownProcessor.DEFAULT_MAX_PARSING_TIME);
+    }
+
+    @Benchmark
+    public String markdownToHtml() {
+        return pegDownProcessor.markdownToHtml(document);
+    }
+
+    @Benchmark
+    public Page render() {
+        return renderer.render(characters);
+    }
+}
@@ -0,0 +1,72 @@
+package org.javabits.maven.md;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pegdown.PegDownProcessor;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the merge of the rendered html into the page template,
+ * compared with the former chain of {@link String#replace(CharSequence, CharSequence)}.
+ *
+ * @author Romain Gilles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int sections;
+
+    private String templateFile;
+    private Template template;
+    private String html;
+    private CharArrayWriter writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        templateFile = Resources.toString("/file-template.html");
+        template = Template.compile(templateFile);
+        html = new PegDownProcessor().markdownToHtml(Corpus.document(sections));
+        writer = new CharArrayWriter(html.length() + templateFile.length());
+    }
+
+    @Benchmark
+    public Template compile() {
+        return Template.compile(templateFile);
+    }
+
+    @Benchmark
+    public CharArrayWriter merge() throws IOException {
+        writer.reset();
+        Map<String, String> values = new HashMap<>();
+        values.put(Template.TITLE, "The Title");
+        values.put(Template.CSS, "../base.css");
+        values.put(Template.CONTENT, html);
+        template.merge(values, writer);
+        return writer;
+    }
+
+    @Benchmark
+    public String replace() {
+        return templateFile.replace("${title}", "The Title").replace("${css}", "../base.css").replace("${content}", html);
+    }
+}
@@ -0,0 +1,38 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Smoke test of the benchmarks: run one short iteration of each one on the smallest corpus,
+ * so a fixture which does not follow the plugin anymore fails the build instead of the next benchmark run.
+ *
+ * @author Romain Gilles
+ */
+public class BenchmarksTest {
+
+    @Test
+    public void testRunOneIteration() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(getClass().getPackage().getName() + ".*Benchmark")
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(10))
+                .param("corpusSize", "10")
+                .param("sections", "1")
+                .shouldFailOnError(true)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertThat(results.isEmpty(), is(false));
+    }
+}
@@ -0,0 +1,14 @@
+private void checkFile(String path) {
+    File file = new File(basedir, path);
+    assert file.isFile()
+}
+
+checkFile("target/docs/index.html");
+checkFile("target/docs/base.css");
+checkFile("target/docs/a/index.html");
+checkFile("target/docs/a/icon.gif");
+checkFile("target/docs/b/guide/guide.html");
+checkFile("target/aggregate-test-1.0-SNAPSHOT-docs.zip");
+assert !new File(basedir, "a/target/docs").exists()
+assert !new File(basedir, "b/target/docs").exists()
+checkFile("../../local-repo/org/javabits/maven/md/aggregate-test/1.0-SNAPSHOT/aggregate-test-1.0-SNAPSHOT-docs.zip");
@@ -11,3 +11,4 @@ checkFile("target/docs/user-guide/user-guide.html");
 checkFile("target/docs/user-guide/image.png");
 checkFile("target/default-test-1.0-SNAPSHOT-docs.zip");
 checkFile("../../local-repo/org/javabits/maven/md/default-test/1.0-SNAPSHOT/default-test-1.0-SNAPSHOT-docs.zip");
+assert !new File(basedir, "target/docs/md-search").exists()
@@ -6,5 +6,12 @@ private void checkFile(String path) {
 checkFile("target/docs/index.html");
 checkFile("target/docs/toto.css");
 checkFile("target/docs/table-content.html");
+checkFile("target/docs/md-search/documents.json");
 checkFile("target/options-test-1.0-SNAPSHOT-docs.zip");
-checkFile("../../local-repo/org/javabits/maven/md/options-test/1.0-SNAPSHOT/options-test-1.0-SNAPSHOT-docs.zip");
\ No newline at end of file
+checkFile("../../local-repo/org/javabits/maven/md/options-test/1.0-SNAPSHOT/options-test-1.0-SNAPSHOT-docs.zip");
+String guide = new File(basedir, "target/docs/guide/guide.html").text
+assert guide.contains('<nav><ul>')
+assert guide.contains('href="../index.html"')
+assert guide.contains('href="guide.html#install"')
+String index = new File(basedir, "target/docs/index.html").text
+assert index.contains('href="guide/guide.html#install"')
@@ -0,0 +1,1582 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.pegdown.Extensions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.io.Files.createParentDirs;
+import static com.google.common.io.Files.getFileExtension;
+import static org.javabits.maven.md.Resources.copyToDir;
+
+/**
+ * Base class of the Markdown goals. It holds the parameters shared by all the goals
+ * and the generation of the documentation.
+ *
+ * @author Romain Gilles
+ */
+public abstract class AbstractMarkdownMojo extends AbstractMojo {
+
+    private static final String DEFAULT_FILE_EXTENSION = "md";
+    private static final String FILE_FILTER = "**/*";
+    private static final String[] DEFAULT_INCLUDES = new String[]{FILE_FILTER};
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private static final String DEFAULT_OUTPUT_DIRECTORY = "${project.build.directory}/docs";
+    private static final String DEFAULT_TARGET_FILE_NAME = "${project.build.finalName}-docs";
+    private static final String TARGET_FILE_EXTENSION = "zip";
+    private static final String PART_FILE_SUFFIX = ".part";
+    private static final String REPORT_FILE_NAME = "md-report.json";
+    /**
+     * The time of the archive entries when no output timestamp is configured: 1980-01-01T00:00:00Z, the zip epoch.
+     */
+    private static final long DEFAULT_ARCHIVE_TIME = 315532800000L;
+    private static final String ISO_8601_FORMAT = "yyyy-MM-dd'T'HH:mm:ssXXX";
+    /**
+     * The number of pending generation tasks per thread, enough to keep the threads busy while the entries
+     * are written in order without holding the whole archive in memory.
+     */
+    private static final int PENDING_TASKS_PER_THREAD = 4;
+    /**
+     * The values of the pegdown extensions resolved by name, shared by all the executions.
+     */
+    private static final ConcurrentMap<String, Integer> OPTION_VALUES = new ConcurrentHashMap<>();
+//    private static final String DEFAULT_TARGET_FILE_NAME = "${project.artifactId}-${project.version}-docs.zip";
+    /**
+     * The input directory from where the input files will be looked for generation.
+     * By default it points to {@code ${basedir}/src/main/md}
+     */
+    @Parameter(property = "md.sources", defaultValue = "${basedir}/src/main/md")
+    private File sources;
+    /**
+     * The default charset to use when read the source files.
+     * By default it uses {@code UTF-8} charset.
+     */
+    @Parameter(property = "md.charset", defaultValue = DEFAULT_CHARSET)
+    private String charset;
+    /**
+     * The output directory where the generated files will be written.
+     * By default it's {@code ${project.build.directory}/site}
+     */
+    @Parameter(property = "md.output.dir", defaultValue = DEFAULT_OUTPUT_DIRECTORY)
+    private File outputDir;
+
+    /**
+     * List of include patterns to use to discover
+     * the files that need to be parsed.
+     * By default it includes all the '.md' files.
+     */
+    @Parameter
+    private String[] includes;
+
+    /**
+     * List of exclude patterns applied to the included files, e.g. {@code drafts/**}.
+     * The directories whose files are all excluded are not walked at all.
+     */
+    @Parameter(property = "md.excludes")
+    private String[] excludes;
+
+    /**
+     * Also exclude the default excludes of the Maven scanners: the SCM metadata ({@code .git}, {@code .svn}...)
+     * and the editor temporary files ({@code *~}, {@code #*#}, {@code .DS_Store}...).
+     */
+    @Parameter(property = "md.useDefaultExcludes", defaultValue = "true")
+    private boolean useDefaultExcludes;
+
+    /**
+     * List of options name to give to the parser.
+     * Values of the names can be found at <a href="http://www.decodified.com/pegdown/api/org/pegdown/Extensions.html">Extensions javadoc</a>
+     * Or {@link Extensions Extensions class}.
+     */
+    @Parameter
+    private String[] options;
+
+    /**
+     * The Markdown engine used to render the documents: {@code PEGDOWN} or {@code COMMONMARK}.
+     * The CommonMark parser is faster and its parsing time is linear with the document size,
+     * but it only supports a subset of the {@link #options}: {@code TABLES},
+     * {@code AUTOLINKS}, {@code FENCED_CODE_BLOCKS}, {@code HARDWRAPS} and {@code SUPPRESS_*_HTML}.
+     */
+    @Parameter(property = "md.engine", defaultValue = "PEGDOWN")
+    private MarkdownRenderer.Engine engine;
+
+    /**
+     * You can provide an optional html template that will be used for all the generated pages.
+     * The template can use the following variables: {@code ${title}} the document title,
+     * {@code ${css}} the relative path of the css, {@code ${content}} the html of the document,
+     * {@code ${toc}} the table of contents built from the document headings
+     * and {@code ${nav}} the html of the {@link #navigation} document.
+     * It's read with the {@link #charset}.
+     */
+    @Parameter(property = "md.template")
+    private File template;
+
+    /**
+     * The Markdown document of the navigation shared by all the pages, e.g. a table of contents displayed as
+     * a sidebar, merged into the {@code ${nav}} variable of the {@link #template}. It's rendered once per build
+     * and its relative links are fixed for each page to target the same files from every directory.
+     * The path is relative to the {@link #sources} directory, the links of a document outside of it are
+     * relative to the root of the output directory.
+     * It's only rendered if the template uses the variable.
+     */
+    @Parameter(property = "md.nav", defaultValue = "table-content.md")
+    private String navigation;
+
+    /**
+     * You can provide an optional css that will be applied to the generated documentation.
+     */
+    @Parameter(property = "md.css")
+    private File css;
+
+    /**
+     * The Markdown file extension without the dote '.'. By default is set to {@code 'md'}
+     */
+    @Parameter(property = "md.file.extension", defaultValue = DEFAULT_FILE_EXTENSION)
+    private String fileExtension;
+
+    /**
+     * The target archive file path.
+     */
+    @Parameter(property = "md.target.name", defaultValue = DEFAULT_TARGET_FILE_NAME)
+    private String targetName;
+
+    /**
+     * Project build directory.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true)
+    private File projectBuildDirectory;
+
+    /**
+     * Artifact final name.
+     */
+    @Parameter(defaultValue = "${project.build.finalName}", readonly = true)
+    private String finalName;
+
+    /**
+     * add the artifact final name as root directory into the archive before
+     * the {@link #outputDir} name its default value is {@code "docs"}.
+     */
+    @Parameter(property = "md.add.final.name", defaultValue = "false")
+    private boolean addFinalName;
+
+    /**
+     * Only regenerate the files whose content changed since the previous build.
+     * The state of the previous build is kept in {@code ${project.build.directory}/md-manifest.properties}.
+     * Set it to {@code false} to force the generation of all the files.
+     */
+    @Parameter(property = "md.incremental", defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * The number of threads used to generate the documentation.
+     * By default, or if the value is lower than 1, it uses the number of available processors.
+     */
+    @Parameter(property = "md.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Write the archive entries while the files are generated instead of archiving
+     * the output directory once the generation is done. The entries are compressed
+     * by the generation threads and the already compressed files (images...) are stored as is.
+     * The archive is written aside and only replaces the previous one if its content changed.
+     */
+    @Parameter(property = "md.archive.stream", defaultValue = "true")
+    private boolean streamArchive;
+
+    /**
+     * How the static resources and the css are copied into the output directory:
+     * {@code COPY} the content or create a hard {@code LINK} when the source and the output directory
+     * are on the same file system. In both cases the files whose size and last modification time
+     * match the already copied ones are skipped.
+     */
+    @Parameter(property = "md.copy.strategy", defaultValue = "COPY")
+    private FileCopier.Strategy copyStrategy;
+
+    /**
+     * The number of slowest documents listed in the generation summary.
+     */
+    @Parameter(property = "md.report.top", defaultValue = "10")
+    private int reportTop;
+
+    /**
+     * Write the statistics of the generation (time per phase and per document) as json
+     * into {@code ${project.build.directory}/md-report.json}.
+     */
+    @Parameter(property = "md.report.json", defaultValue = "false")
+    private boolean jsonReport;
+
+    /**
+     * Directory of the cache of the rendered pages, shared by all the builds using the same directory,
+     * for example {@code ${settings.localRepository}/../md-cache}. The pages are cached by content,
+     * so only the pages whose source differs from all the already built ones are rendered.
+     * By default there is no cache.
+     */
+    @Parameter(property = "md.cache.dir")
+    private File cacheDirectory;
+
+    /**
+     * The maximum size in megabytes of the {@link #cacheDirectory cache of the rendered pages}.
+     * The least recently used pages are evicted at the end of the generation when the cache exceeds this size.
+     */
+    @Parameter(property = "md.cache.size", defaultValue = "256")
+    private long cacheSize;
+
+    /**
+     * The last modification time of the archive entries, so identical outputs produce identical archives.
+     * It's an ISO 8601 date time, such as {@code 2013-06-18T17:13:13Z}, or a number of seconds since the epoch.
+     * By default it uses the {@code project.build.outputTimestamp} property, if it's not set
+     * the entries use a constant time.
+     */
+    @Parameter(property = "md.output.timestamp", defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    /**
+     * Fail the build if a relative link of a Markdown document targets a file which is not generated
+     * or an anchor which is not a heading of the target page. By default the broken links are only reported.
+     * The relative links to the Markdown documents, such as {@code guide.md#install}, are always rewritten
+     * into links to the generated pages, such as {@code guide.html#install}.
+     */
+    @Parameter(property = "md.links.fail", defaultValue = "false")
+    private boolean failOnBrokenLinks;
+
+    /**
+     * Write a search index of the generated pages into the {@code md-search} directory of the {@link #outputDir},
+     * as static json files: {@code documents.json} the list of the {@code [path, title]} of the pages,
+     * and one shard per term prefix mapping the terms to the delta encoded ids of the pages containing them.
+     * The index is part of the documentation archive.
+     */
+    @Parameter(property = "md.search", defaultValue = "false")
+    private boolean search;
+
+    /**
+     * Write a precompressed {@code .gz} sibling next to each generated page, the css, the search index
+     * and the copied resources, for the static servers serving the precompressed files.
+     * The already compressed resources (images, archives...) and the up to date siblings are skipped.
+     * The siblings are not part of the documentation archive.
+     */
+    @Parameter(property = "md.gzip", defaultValue = "false")
+    private boolean gzip;
+
+    /**
+     * Maximum time in milliseconds to parse a Markdown document, some malformed documents (e.g. deeply
+     * nested emphasis) can make the {@code PEGDOWN} parser run for minutes, {@code 0} or less for no limit.
+     * The {@code COMMONMARK} parser runs in linear time and ignores this limit.
+     */
+    @Parameter(property = "md.parse.timeout", defaultValue = "2000")
+    private long parseTimeout;
+
+    /**
+     * Maximum time in milliseconds to render all the Markdown documents of a generation, {@code 0} or less for no limit.
+     * Once exhausted, the documents still to render are handled as the ones exceeding the {@link #parseTimeout}.
+     */
+    @Parameter(property = "md.time.budget", defaultValue = "0")
+    private long timeBudget;
+
+    /**
+     * What to do with a document exceeding the {@link #parseTimeout} or the {@link #timeBudget}, or too deeply
+     * nested for the parser: {@code FAIL} the build or generate the page with the source of the document as escaped
+     * {@code PREFORMATTED} text. Such pages are generated again by the next generation.
+     */
+    @Parameter(property = "md.timeout.action", defaultValue = "FAIL")
+    private TimeoutAction timeoutAction;
+
+    /**
+     * Write each static resource and the css under the name of the hash of its content into the
+     * {@code md-assets} directory of the {@link #outputDir}, instead of under its own name, so the identical
+     * resources are written once and all of them can be served with long-lived cache headers.
+     * The references of the pages, of the template and of the navigation to them are rewritten, and the {@code md-assets.json}
+     * manifest maps the path of each resource to its fingerprinted file. As the css is moved into the
+     * {@code md-assets} directory, its relative urls must not target other files.
+     */
+    @Parameter(property = "md.assets.fingerprint", defaultValue = "false")
+    private boolean fingerprintAssets;
+
+    private SourceRoots sourceRoots;
+
+    @Component
+    private MavenProject project;
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    /**
+     * Prepare a generation rendering the documents on demand: only the css is written into the output directory,
+     * nothing is recorded for the next builds.
+     */
+    Generation prepareGeneration() throws MojoExecutionException {
+        String templateFile = getTemplate();
+        Path targetCss = prepareCss().getAbsoluteFile().toPath();
+        return new Generation(templateFile, getNavigation(templateFile), targetCss, BuildManifest.empty(getManifestFile(), ""),
+                LinkIndex.empty(getLinkIndexFile(), ""), null, null, new BuildStatistics(), false);
+    }
+
+    /**
+     * @return the fingerprint of the files shared by all the pages: the template, the css and the navigation
+     * document, to detect their modifications.
+     */
+    String fingerprintSharedFiles() {
+        return BuildManifest.fingerprint(fingerprintFile(template), fingerprintFile(css), fingerprintFile(getNavigationFile()));
+    }
+
+    private static String fingerprintFile(File file) {
+        return file != null && file.isFile() ? BuildManifest.fingerprint(file) : null;
+    }
+
+    /**
+     * Generate the documentation from the sources.
+     *
+     * @param packageDoc {@code true} to also produce and attach the documentation archive.
+     * @return the generation state, to be reused for further generations,
+     * or {@code null} if there is no documentation to generate.
+     */
+    Generation generateDocumentation(boolean packageDoc) throws MojoExecutionException, MojoFailureException {
+        Generation generation = generateSources(packageDoc);
+        if (generation != null) {
+            checkLinks(generation);
+        }
+        return generation;
+    }
+
+    /**
+     * Generate the documentation from the sources, the broken links are not reported.
+     *
+     * @param packageDoc {@code true} to also produce and attach the documentation archive.
+     * @return the generation state, to be reused for further generations,
+     * or {@code null} if there is no documentation to generate.
+     */
+    Generation generateSources(boolean packageDoc) throws MojoExecutionException {
+        BuildStatistics statistics = new BuildStatistics();
+        if (!getSourceRoots().exists()) {
+            getLog().info("Skip project no documentation found at: " + sources);
+            return null;
+        }
+        final String templateFile = getTemplate();
+
+        Path targetCss = prepareCss().getAbsoluteFile().toPath();
+        if (fingerprintAssets) {
+            targetCss = fingerprintCss(targetCss.toFile()).getAbsoluteFile().toPath();
+        }
+        Navigation navigation = getNavigation(templateFile);
+        BuildManifest manifest = loadManifest(templateFile, navigation, targetCss);
+        boolean archived = packageDoc && streamArchive;
+        Generation generation = new Generation(templateFile, navigation, targetCss, manifest, loadLinkIndex(manifest), loadSearchIndex(manifest),
+                loadAssetIndex(manifest, targetCss), statistics, archived);
+        compress(generation, targetCss.toFile());
+        if (archived) {
+            generateAndArchive(generation);
+        } else {
+            String[] includedFiles = generate(generation, null);
+            deleteRemovedSources(manifest);
+            List<File> generatedFiles = new ArrayList<>(writeSearchIndex(generation));
+            File assetManifest = writeAssetIndex(generation);
+            if (assetManifest != null) {
+                generatedFiles.add(assetManifest);
+            }
+            if (packageDoc) {
+                packageDoc(generation, includedFiles, generatedFiles);
+            }
+            storeManifest(manifest);
+        }
+        storeIndexes(generation);
+        evictRenderedPages(generation.fragmentCache);
+        report(statistics);
+        return generation;
+    }
+
+    /**
+     * @throws MojoFailureException if there are broken links and the build must fail on them.
+     */
+    private void checkLinks(Generation generation) throws MojoFailureException {
+        List<String> brokenLinks = reportBrokenLinks(generation);
+        if (failOnBrokenLinks && !brokenLinks.isEmpty()) {
+            throw new MojoFailureException(brokenLinks.size() + " broken links found in the Markdown documents.");
+        }
+    }
+
+    SourceScanner newSourceScanner() {
+        return newSourceScanner(sources);
+    }
+
+    SourceScanner newSourceScanner(File sourceDirectory) {
+        return new SourceScanner(sourceDirectory.toPath(), getIncludes(), excludes != null ? excludes : new String[0], useDefaultExcludes, fileExtension);
+    }
+
+    /**
+     * @return the source directories of the generation.
+     */
+    SourceRoots getSourceRoots() {
+        if (sourceRoots == null) {
+            sourceRoots = newSourceRoots();
+        }
+        return sourceRoots;
+    }
+
+    /**
+     * @return the {@link #sources} directory generated into the root of the {@link #outputDir}.
+     */
+    SourceRoots newSourceRoots() {
+        return SourceRoots.of(newSourceScanner());
+    }
+
+    private void evictRenderedPages(FragmentCache fragmentCache) {
+        if (fragmentCache == null) {
+            return;
+        }
+        getLog().info("Rendered pages cache: " + fragmentCache.getHits() + " hits, " + fragmentCache.getMisses() + " misses");
+        try {
+            int evicted = fragmentCache.evict();
+            getLog().debug("Evict " + evicted + " pages from the rendered pages cache: " + cacheDirectory);
+        } catch (IOException e) {
+            getLog().warn("Cannot evict the pages from the rendered pages cache: " + cacheDirectory, e);
+        }
+    }
+
+    private void report(BuildStatistics statistics) throws MojoExecutionException {
+        statistics.stop();
+        for (String line : statistics.getSummary(reportTop)) {
+            getLog().info(line);
+        }
+        if (jsonReport) {
+            File reportFile = new File(projectBuildDirectory, REPORT_FILE_NAME);
+            try {
+                statistics.writeJson(reportFile);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot write the generation report: " + reportFile, e);
+            }
+        }
+    }
+
+    /**
+     * Generate the documentation and write the archive entries as soon as the files are generated.
+     * The archive is written aside, and kept as is if its content did not change since the previous build.
+     */
+    private void generateAndArchive(Generation generation) throws MojoExecutionException {
+        File targetFile = getTargetFile();
+        File archiveFile = new File(targetFile.getPath() + PART_FILE_SUFFIX);
+        try {
+            createParentDirs(archiveFile);
+            try (DocsArchive archive = new DocsArchive(archiveFile, getArchivePrefix())) {
+                writeCss(archive, generation);
+                generate(generation, archive);
+                deleteRemovedSources(generation.manifest);
+                for (File searchFile : writeSearchIndex(generation)) {
+                    writeEntry(archive, generation.archive(searchFile), searchFile.getName(), generation.statistics);
+                }
+                File assetManifest = writeAssetIndex(generation);
+                if (assetManifest != null) {
+                    writeEntry(archive, generation.archive(assetManifest), assetManifest.getName(), generation.statistics);
+                }
+            }
+            String archiveDigest = getArchiveDigest(generation);
+            if (archiveDigest.equals(generation.manifest.getArchiveDigest()) && targetFile.isFile()) {
+                getLog().info("The documentation archive is up to date: " + targetFile);
+            } else {
+                Files.move(archiveFile, targetFile);
+            }
+            generation.manifest.setArchiveDigest(archiveDigest);
+            storeManifest(generation.manifest);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot produce the documentation archive.", e);
+        } finally {
+            if (archiveFile.exists() && !archiveFile.delete()) {
+                getLog().warn("Cannot delete the temporary documentation archive: " + archiveFile);
+            }
+        }
+        attachArchive();
+    }
+
+    private String getArchivePrefix() {
+        String prefix = outputDir.getName() + '/';
+        if (addFinalName) {
+            return finalName + '/' + prefix;
+        }
+        return prefix;
+    }
+
+    private void writeCss(DocsArchive archive, Generation generation) throws IOException, MojoExecutionException {
+        writeEntry(archive, generation.archive(generation.targetCss.toFile()), getCssName(), generation.statistics);
+    }
+
+    /**
+     * @return the digest of the content of the archive: the generated files, the css, the search index and the archive layout.
+     */
+    private String getArchiveDigest(Generation generation) {
+        return BuildManifest.fingerprint(generation.manifest.getDigest(), BuildManifest.fingerprint(generation.targetCss.toFile()),
+                String.valueOf(search), getArchivePrefix(), String.valueOf(generation.archiveTime));
+    }
+
+    private void compress(Generation generation, File file) throws MojoExecutionException {
+        try {
+            generation.compress(file, false);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the gzip sibling of: " + file, e);
+        }
+    }
+
+    /**
+     * @return the manifest of the fingerprinted files, or {@code null} if the assets are not fingerprinted.
+     */
+    private File writeAssetIndex(Generation generation) throws MojoExecutionException {
+        try {
+            return generation.writeAssetIndex();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the assets manifest: " + new File(outputDir, AssetIndex.MANIFEST_FILE_NAME), e);
+        }
+    }
+
+    private List<File> writeSearchIndex(Generation generation) throws MojoExecutionException {
+        try {
+            return generation.writeSearchIndex();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the search index: " + getSearchDirectory(), e);
+        }
+    }
+
+    /**
+     * Discover and generate the included files, each file is generated as soon as it's found.
+     * If the archive is given the generated files are written into it.
+     *
+     * @return the relative paths of the included source files in the scan order.
+     */
+    private String[] generate(final Generation generation, DocsArchive archive) throws MojoExecutionException {
+        SourceRoots roots = getSourceRoots();
+        getLog().debug("Scan files " + Arrays.toString(getIncludes()) + " excluding " + Arrays.toString(excludes) + ", from: " + sources);
+        try (FileProcessor processor = new FileProcessor("Generate", new FileTask() {
+            @Override
+            public DocsArchive.Entry process(String includedFile, boolean document) throws IOException {
+                return generation.generate(includedFile, document);
+            }
+        }, archive, generation.statistics, getThreads(), getLog())) {
+            long start = System.nanoTime();
+            try {
+                roots.scan(processor);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot scan the sources directory: " + sources + ", " + e.getMessage(), e);
+            }
+            generation.statistics.record(BuildStatistics.Phase.SCAN, start);
+            String[] includedFiles = processor.complete();
+            getLog().debug("Included files: " + Arrays.toString(includedFiles));
+            return includedFiles;
+        }
+    }
+
+    /**
+     * Process all the included files using a pool of {@link #getThreads()} threads.
+     */
+    private void process(String action, FileTask task, String[] includedFiles, DocsArchive archive, BuildStatistics statistics) throws MojoExecutionException {
+        try (FileProcessor processor = new FileProcessor(action, task, archive, statistics, getThreads(), getLog())) {
+            for (String includedFile : includedFiles) {
+                if (!processor.found(includedFile, isDocument(includedFile))) {
+                    break;
+                }
+            }
+            processor.complete();
+        }
+    }
+
+    private boolean isDocument(String includedFile) {
+        return fileExtension.equals(getFileExtension(includedFile));
+    }
+
+    /**
+     * A task applied to an included file.
+     */
+    interface FileTask {
+        /**
+         * @param document {@code true} if the file is a Markdown document, {@code false} if it's a static resource.
+         * @return the archive entry of the file, or {@code null} if it is not archived.
+         */
+        DocsArchive.Entry process(String includedFile, boolean document) throws IOException;
+    }
+
+    /**
+     * Submit the task of each file to a pool of threads as soon as the file is found.
+     * The archive entries are written in the order in which the files are found, whatever the order of completion
+     * of the tasks, so the archive content does not depend on the scheduling. Each entry is written and released
+     * as soon as the tasks of the files found before it are done, and at most {@link #PENDING_TASKS_PER_THREAD}
+     * tasks per thread are pending: the scan waits for the oldest one beyond, so only a few entries are held in memory.
+     * Once a task failed no other file is accepted, so the scan stops, and if several files fail the reported one
+     * is the first one found.
+     */
+    static final class FileProcessor implements SourceScanner.Listener, AutoCloseable {
+        private final String action;
+        private final FileTask task;
+        private final DocsArchive archive;
+        private final BuildStatistics statistics;
+        private final int threads;
+        private final Log log;
+        private final int maxPendingTasks;
+        private final ExecutorService executor;
+        private final Deque<Map.Entry<String, Future<DocsArchive.Entry>>> pendingTasks = new ArrayDeque<>();
+        private final List<String> includedFiles = new ArrayList<>();
+        private int documents;
+        private MojoExecutionException failure;
+
+        /**
+         * @param archive the archive receiving the entries returned by the tasks, or {@code null}.
+         * @param threads the size of the pool.
+         */
+        FileProcessor(String action, FileTask task, DocsArchive archive, BuildStatistics statistics, int threads, Log log) {
+            this.action = action;
+            this.task = task;
+            this.archive = archive;
+            this.statistics = statistics;
+            this.threads = threads;
+            this.log = log;
+            this.maxPendingTasks = threads * PENDING_TASKS_PER_THREAD;
+            this.executor = Executors.newFixedThreadPool(threads);
+        }
+
+        /**
+         * @return {@code false} once a task failed, the failure being thrown by {@link #complete()}.
+         */
+        @Override
+        public boolean found(final String includedFile, final boolean document) {
+            if (failure != null) {
+                return false;
+            }
+            if (document) {
+                documents++;
+            }
+            includedFiles.add(includedFile);
+            pendingTasks.addLast(Maps.immutableEntry(includedFile, executor.submit(new Callable<DocsArchive.Entry>() {
+                @Override
+                public DocsArchive.Entry call() throws IOException {
+                    return task.process(includedFile, document);
+                }
+            })));
+            try {
+                while (!pendingTasks.isEmpty() && (pendingTasks.size() > maxPendingTasks || pendingTasks.peekFirst().getValue().isDone())) {
+                    completeNext();
+                }
+            } catch (MojoExecutionException e) {
+                failure = e;
+            }
+            return failure == null;
+        }
+
+        /**
+         * Wait for the completion of all the tasks.
+         *
+         * @return the relative paths of the processed files in the order in which they were found.
+         */
+        String[] complete() throws MojoExecutionException {
+            log.debug(action + " " + includedFiles.size() + " files (" + documents + " documents) using " + threads + " threads");
+            if (failure != null) {
+                throw failure;
+            }
+            while (!pendingTasks.isEmpty()) {
+                completeNext();
+            }
+            return includedFiles.toArray(new String[includedFiles.size()]);
+        }
+
+        private void completeNext() throws MojoExecutionException {
+            Map.Entry<String, Future<DocsArchive.Entry>> result = pendingTasks.removeFirst();
+            DocsArchive.Entry entry = waitFor(result.getValue(), result.getKey());
+            if (archive != null) {
+                writeEntry(archive, entry, result.getKey(), statistics);
+            }
+        }
+
+        /**
+         * Interrupt the pending tasks and wait for them, so no file is written once the processing is over.
+         */
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    log.debug("Wait for the end of the interrupted tasks: " + action);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void writeEntry(DocsArchive archive, DocsArchive.Entry entry, String includedFile, BuildStatistics statistics) throws MojoExecutionException {
+        long start = System.nanoTime();
+        try {
+            archive.write(entry);
+            statistics.record(BuildStatistics.Phase.ARCHIVE, start);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot archive the file generated from: " + includedFile, e);
+        }
+    }
+
+    /**
+     * The handling of the documents which cannot be rendered in time.
+     */
+    enum TimeoutAction {
+        FAIL, PREFORMATTED
+    }
+
+    private static DocsArchive.Entry waitFor(Future<DocsArchive.Entry> result, String includedFile) throws MojoExecutionException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted when generated from: " + includedFile, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new MojoExecutionException("IO exception when generated from: " + includedFile, cause);
+            }
+            if (cause instanceof RenderingException) {
+                throw new MojoExecutionException(cause.getMessage(), cause);
+            }
+            throw new MojoExecutionException("Cannot generate from: " + includedFile, cause);
+        }
+    }
+
+    int getThreads() {
+        if (threads > 0) {
+            return threads;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private BuildManifest loadManifest(String templateFile, Navigation navigation, Path targetCss) throws MojoExecutionException {
+        String settings = BuildManifest.fingerprint(BuildManifest.VERSION, engine.name(), String.valueOf(getOptions()), fileExtension, charset,
+                templateFile, navigation != null ? navigation.getHtml() : null, targetCss.getFileName().toString(), String.valueOf(fingerprintAssets));
+        try {
+            if (!incremental) {
+                return BuildManifest.loadSources(getManifestFile(), settings);
+            }
+            return BuildManifest.load(getManifestFile(), settings);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the generation manifest: " + getManifestFile(), e);
+        }
+    }
+
+    /**
+     * Log the broken links of the generated pages.
+     *
+     * @return the description of the broken links.
+     */
+    List<String> reportBrokenLinks(Generation generation) {
+        List<String> brokenLinks = generation.links.getBrokenLinks();
+        for (String brokenLink : brokenLinks) {
+            getLog().warn(brokenLink);
+        }
+        return brokenLinks;
+    }
+
+    private LinkIndex loadLinkIndex(BuildManifest manifest) throws MojoExecutionException {
+        if (!incremental) {
+            return LinkIndex.empty(getLinkIndexFile(), manifest.getSettings());
+        }
+        try {
+            return LinkIndex.load(getLinkIndexFile(), manifest.getSettings());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the links index: " + getLinkIndexFile(), e);
+        }
+    }
+
+    private AssetIndex loadAssetIndex(BuildManifest manifest, Path targetCss) throws MojoExecutionException {
+        if (!fingerprintAssets) {
+            return null;
+        }
+        AssetIndex assets;
+        if (!incremental) {
+            assets = AssetIndex.empty(getAssetIndexFile(), manifest.getSettings(), getSourceRoots());
+        } else {
+            try {
+                assets = AssetIndex.load(getAssetIndexFile(), manifest.getSettings(), getSourceRoots());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot read the assets index: " + getAssetIndexFile(), e);
+            }
+        }
+        assets.add(getCssName(), getOutputPath(targetCss.toFile()));
+        return assets;
+    }
+
+    private SearchIndex loadSearchIndex(BuildManifest manifest) throws MojoExecutionException {
+        if (!search) {
+            return null;
+        }
+        if (!incremental) {
+            return SearchIndex.empty(getSearchIndexFile(), manifest.getSettings());
+        }
+        try {
+            return SearchIndex.load(getSearchIndexFile(), manifest.getSettings());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the search terms: " + getSearchIndexFile(), e);
+        }
+    }
+
+    /**
+     * Store the links and the search terms of the pages for the next generations.
+     */
+    private void storeIndexes(Generation generation) throws MojoExecutionException {
+        try {
+            generation.links.store();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the links index: " + getLinkIndexFile(), e);
+        }
+        if (generation.search != null) {
+            try {
+                generation.search.store();
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot write the search terms: " + getSearchIndexFile(), e);
+            }
+        }
+        if (generation.assets != null) {
+            try {
+                generation.assets.store();
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot write the assets index: " + getAssetIndexFile(), e);
+            }
+        }
+    }
+
+    void storeManifest(BuildManifest manifest) throws MojoExecutionException {
+        try {
+            manifest.store();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the generation manifest: " + getManifestFile(), e);
+        }
+    }
+
+    private void deleteRemovedSources(BuildManifest manifest) {
+        for (String removedSource : manifest.getRemovedSources()) {
+            File destinationFile = getDestinationFile(removedSource);
+            getLog().debug("Delete the output of the removed source: " + removedSource);
+            if (destinationFile.exists() && !destinationFile.delete()) {
+                getLog().warn("Cannot delete the output of the removed source: " + destinationFile);
+            }
+            File sibling = Gzip.getSibling(destinationFile);
+            if (sibling.exists() && !sibling.delete()) {
+                getLog().warn("Cannot delete the gzip sibling of the removed source: " + sibling);
+            }
+        }
+    }
+
+    private File getManifestFile() {
+        return new File(projectBuildDirectory, BuildManifest.FILE_NAME);
+    }
+
+    private File getLinkIndexFile() {
+        return new File(projectBuildDirectory, LinkIndex.FILE_NAME);
+    }
+
+    private File getSearchIndexFile() {
+        return new File(projectBuildDirectory, SearchIndex.FILE_NAME);
+    }
+
+    private File getAssetIndexFile() {
+        return new File(projectBuildDirectory, AssetIndex.FILE_NAME);
+    }
+
+    private File getSearchDirectory() {
+        return new File(outputDir, SearchIndex.DIRECTORY);
+    }
+
+    private String getCssRelativePath(Path targetCss, File destinationFile) {
+        return destinationFile.getAbsoluteFile().toPath().getParent().relativize(targetCss).toString().replace("\\", "/");
+    }
+
+    private File prepareCss() throws MojoExecutionException {
+        if (outputDir.mkdirs()) {
+            getLog().debug("Create the root directory: " + outputDir);
+        }
+        File targetCss = null;
+        try {
+            if (css != null) {
+                targetCss = new File(outputDir, css.toPath().getFileName().toString());
+
+                FileCopier.copy(css, targetCss, copyStrategy);
+            } else {
+                targetCss = copyToDir("/base.css", outputDir);
+            }
+            return targetCss;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot copy css file: " + targetCss, e);
+        }
+    }
+
+    /**
+     * Move the css to its fingerprinted file.
+     */
+    private File fingerprintCss(File targetCss) throws MojoExecutionException {
+        File fingerprintedCss = null;
+        try {
+            fingerprintedCss = new File(outputDir, AssetIndex.getAssetPath(targetCss, getFileExtension(targetCss.getName())));
+            if (!fingerprintedCss.isFile()) {
+                createParentDirs(fingerprintedCss);
+                Files.copy(targetCss, fingerprintedCss);
+            }
+            if (!targetCss.delete()) {
+                getLog().warn("Cannot delete the not fingerprinted css: " + targetCss);
+            }
+            return fingerprintedCss;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot copy css file: " + fingerprintedCss, e);
+        }
+    }
+
+    private String getCssName() {
+        return css != null ? css.getName() : "base.css";
+    }
+
+    /**
+     * @return the path of the given generated file relative to the output directory, with {@code '/'} as separator.
+     */
+    private String getOutputPath(File file) {
+        return outputDir.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private String getTemplate() throws MojoExecutionException {
+        String templateFile;
+        try {
+            if (template != null) {
+                templateFile = Files.toString(template, Charset.forName(charset));
+            } else {
+                templateFile = Resources.toString("/file-template.html");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the template-file", e);
+        }
+        return templateFile;
+    }
+
+    /**
+     * Render the {@link #navigation} document once for all the pages.
+     *
+     * @return the navigation, empty if its document does not exist,
+     * or {@code null} if the template does not use it.
+     */
+    private Navigation getNavigation(String templateFile) throws MojoExecutionException {
+        if (!Template.forSource(templateFile).hasVariable(Template.NAV)) {
+            return null;
+        }
+        File navigationFile = getNavigationFile();
+        String pagePath = Links.getPagePath(new File(navigation).isAbsolute()
+                ? navigationFile.getName() : navigation.replace('/', File.separatorChar));
+        if (!navigationFile.isFile()) {
+            getLog().warn("Navigation document not found: " + navigationFile);
+            return Navigation.compile(pagePath, "");
+        }
+        MarkdownRenderer renderer = null;
+        RendererPool renderers = RendererPool.of(engine, getEngineOptions(), fileExtension, parseTimeout, getThreads());
+        try {
+            char[] document = SourceFile.decode(SourceFile.read(navigationFile), Charset.forName(charset));
+            renderer = renderers.acquire();
+            return Navigation.compile(pagePath, renderer.render(document).getHtml());
+        } catch (IOException | RenderingException e) {
+            throw new MojoExecutionException("Cannot render the navigation document: " + navigationFile, e);
+        } finally {
+            if (renderer != null) {
+                renderers.release(renderer);
+            }
+        }
+    }
+
+    /**
+     * @return the {@link #navigation} document, resolved against the sources if relative.
+     */
+    private File getNavigationFile() {
+        File navigationFile = new File(navigation);
+        if (navigationFile.isAbsolute()) {
+            return navigationFile;
+        }
+        return getInputFile(navigation.replace('/', File.separatorChar));
+    }
+
+    File getSources() {
+        return sources;
+    }
+
+    File getInputFile(String includedFile) {
+        return getSourceRoots().getFile(includedFile);
+    }
+
+    File getOutputDir() {
+        return outputDir;
+    }
+
+    private File getDestinationFile(String includedFile, String extension) {
+        String nameWithoutExtension = getDestinationFilePath(includedFile, extension);
+        return new File(outputDir, nameWithoutExtension);
+    }
+
+    private File getDestinationFileForTransformation(String includedFile) {
+        return getDestinationFile(includedFile, "html");
+    }
+
+    private File getDestinationFileForCopy(String includedFile) {
+        return new File(outputDir, includedFile);
+    }
+
+    File getDestinationFile(String includedFile) {
+        if (isDocument(includedFile)) {
+            return getDestinationFileForTransformation(includedFile);
+        }
+        return getDestinationFileForCopy(includedFile);
+    }
+
+
+    static String getDestinationFilePath(String includedFile) {
+        return getDestinationFilePath(includedFile, "html");
+    }
+
+    static String getDestinationFilePath(String includedFile, String extension) {
+        Path path = Paths.get(includedFile);
+        String fileName = Files.getNameWithoutExtension(includedFile) + '.' + extension;
+        Path parent = path.getParent();
+        if (parent != null) {
+            return parent.resolve(fileName).toString();
+        }
+        return fileName;
+    }
+
+    /**
+     * @param destinationPath the path of a generated page relative to the output directory.
+     * @return the path of the Markdown document it's generated from, the inverse of {@link #getDestinationFilePath(String)}.
+     */
+    String getSourceFilePath(String destinationPath) {
+        return getDestinationFilePath(destinationPath, fileExtension);
+    }
+
+    String[] getIncludes() {
+        if (includes != null && includes.length > 0) {
+            return includes;
+        }
+        return DEFAULT_INCLUDES;
+    }
+
+    public int getOptions() throws MojoExecutionException {
+        int result = Extensions.NONE;
+        if (options != null && options.length > 0) {
+            for (String option : options) {
+                result |= getOption(option);
+            }
+        }
+        return result;
+    }
+
+    private int getOption(String option) throws MojoExecutionException {
+        Integer value = OPTION_VALUES.get(option);
+        if (value != null) {
+            return value;
+        }
+        getLog().debug("Lookup option value for: " + option);
+        Extensions extensions = new Extensions() {
+        };
+        try {
+            Field field = Extensions.class.getField(option);
+            value = (int) field.get(extensions);
+            OPTION_VALUES.putIfAbsent(option, value);
+            return value;
+        } catch (NoSuchFieldException e) {
+            throw new MojoExecutionException("Cannot find the corresponding extension: " + option, e);
+        } catch (IllegalAccessException e) {
+            throw new MojoExecutionException("Cannot get the value for extension: " + option, e);
+        }
+    }
+
+    /**
+     * @return the options bit set, after having warned about the options not supported by the {@link #engine}.
+     */
+    private int getEngineOptions() throws MojoExecutionException {
+        int result = getOptions();
+        if ((result & ~engine.getSupportedOptions()) != 0) {
+            List<String> ignoredOptions = new ArrayList<>();
+            for (String option : options) {
+                if ((getOption(option) & ~engine.getSupportedOptions()) != 0) {
+                    ignoredOptions.add(option);
+                }
+            }
+            getLog().warn("The " + engine + " engine ignores the options: " + ignoredOptions);
+        }
+        return result;
+    }
+
+
+    /**
+     * Produce the documentation archive from the generated files, unless the existing archive
+     * already has the same content.
+     */
+    private void packageDoc(final Generation generation, String[] includedFiles, List<File> generatedFiles) throws MojoExecutionException {
+        File targetFile = getTargetFile();
+        String archiveDigest = getArchiveDigest(generation);
+        if (archiveDigest.equals(generation.manifest.getArchiveDigest()) && targetFile.isFile()) {
+            getLog().info("The documentation archive is up to date: " + targetFile);
+            attachArchive();
+            return;
+        }
+        boolean success = false;
+        try {
+            createParentDirs(targetFile);
+            try (DocsArchive archive = new DocsArchive(targetFile, getArchivePrefix())) {
+                writeCss(archive, generation);
+                process("Archive", new FileTask() {
+                    @Override
+                    public DocsArchive.Entry process(String includedFile, boolean document) throws IOException {
+                        if (!document && generation.assets != null) {
+                            return generation.archiveAsset(includedFile);
+                        }
+                        return generation.archive(getDestinationFile(includedFile));
+                    }
+                }, includedFiles, archive, generation.statistics);
+                for (File generatedFile : generatedFiles) {
+                    writeEntry(archive, generation.archive(generatedFile), generatedFile.getName(), generation.statistics);
+                }
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot produce the documentation archive.", e);
+        } finally {
+            if (!success && targetFile.exists() && !targetFile.delete()) {
+                getLog().warn("Cannot delete the incomplete documentation archive: " + targetFile);
+            }
+        }
+        generation.manifest.setArchiveDigest(archiveDigest);
+        attachArchive();
+    }
+
+    /**
+     * @return the time of the archive entries as number of milliseconds since the epoch.
+     */
+    private long getArchiveTime() throws MojoExecutionException {
+        // as maven, a value of one character disables the output timestamp
+        if (outputTimestamp == null || outputTimestamp.trim().length() < 2) {
+            return DEFAULT_ARCHIVE_TIME;
+        }
+        String timestamp = outputTimestamp.trim();
+        if (CharMatcher.DIGIT.matchesAllOf(timestamp)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(timestamp));
+        }
+        try {
+            return new SimpleDateFormat(ISO_8601_FORMAT, Locale.ENGLISH).parse(timestamp).getTime();
+        } catch (ParseException e) {
+            throw new MojoExecutionException("Invalid output timestamp, expected an ISO 8601 date time or a number of seconds: " + timestamp, e);
+        }
+    }
+
+    private void attachArchive() {
+        projectHelper.attachArtifact(this.project,
+                TARGET_FILE_EXTENSION,
+                "docs",
+                getTargetFile());
+    }
+
+    private File getTargetFile() {
+        return new File(projectBuildDirectory, targetName + '.' + TARGET_FILE_EXTENSION);
+    }
+
+
+    /**
+     * Hold the state shared by the generation of all the included files.
+     * The files are generated concurrently, as the renderers are not thread safe
+     * each document is rendered by a renderer acquired from the shared {@link RendererPool}.
+     * The generated files, the anchors and the links of the pages are recorded into the {@link LinkIndex},
+     * the search terms of the pages into the {@link SearchIndex}.
+     */
+    class Generation {
+        private final Template template;
+        private final Navigation navigation;
+        private final Path targetCss;
+        private final BuildManifest manifest;
+        private final LinkIndex links;
+        private final SearchIndex search;
+        private final AssetIndex assets;
+        private final Charset charset;
+        private final RendererPool renderers;
+        private final FragmentCache fragmentCache;
+        private final BuildStatistics statistics;
+        private final boolean archived;
+        private final long archiveTime;
+        private volatile long deadline;
+
+        Generation(String templateFile, Navigation navigation, Path targetCss, BuildManifest manifest, LinkIndex links, SearchIndex search,
+                   AssetIndex assets, BuildStatistics statistics, boolean archived) throws MojoExecutionException {
+            this.archived = archived;
+            this.archiveTime = getArchiveTime();
+            this.template = Template.forSource(templateFile);
+            this.navigation = navigation;
+            this.targetCss = targetCss;
+            this.manifest = manifest;
+            this.links = links;
+            this.search = search;
+            this.assets = assets;
+            links.addFile(getOutputPath(targetCss.toFile()));
+            this.statistics = statistics;
+            this.charset = Charset.forName(AbstractMarkdownMojo.this.charset);
+            int options = getEngineOptions();
+            this.renderers = RendererPool.of(engine, options, fileExtension, parseTimeout, getThreads());
+            startTimeBudget();
+            if (cacheDirectory != null) {
+                this.fragmentCache = new FragmentCache(cacheDirectory, cacheSize * 1024 * 1024,
+                        BuildManifest.fingerprint(engine.name(), String.valueOf(options), fileExtension));
+            } else {
+                this.fragmentCache = null;
+            }
+        }
+
+        /**
+         * @return {@code true} if the pages are merged with the navigation and the given file is its document.
+         */
+        boolean isNavigation(Path file) {
+            return navigation != null && file.toAbsolutePath().equals(getNavigationFile().getAbsoluteFile().toPath());
+        }
+
+        /**
+         * Start the {@link #timeBudget} of the rendering of the documents, from now.
+         */
+        void startTimeBudget() {
+            deadline = timeBudget > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget) : 0;
+        }
+
+        /**
+         * Forget a deleted source and delete its generated file.
+         */
+        void remove(String includedFile) throws IOException {
+            manifest.remove(includedFile);
+            links.remove(includedFile, getDestinationPath(includedFile));
+            if (search != null) {
+                search.remove(includedFile);
+            }
+            if (assets != null) {
+                assets.remove(includedFile);
+            }
+            File destinationFile = getDestinationFile(includedFile);
+            if (destinationFile.exists() && !destinationFile.delete()) {
+                throw new IOException("Cannot delete the output of the removed source: " + destinationFile);
+            }
+            Gzip.deleteSibling(destinationFile);
+        }
+
+        /**
+         * Store the state of the generation for the next builds.
+         */
+        void store() throws IOException {
+            manifest.store();
+            links.store();
+            if (search != null) {
+                writeSearchIndex();
+                search.store();
+            }
+            if (assets != null) {
+                writeAssetIndex();
+                assets.store();
+            }
+        }
+
+        /**
+         * @return the manifest of the fingerprinted files, or {@code null} if the assets are not fingerprinted.
+         */
+        File writeAssetIndex() throws IOException {
+            if (assets == null) {
+                return null;
+            }
+            File manifestFile = assets.write(outputDir);
+            compress(manifestFile, false);
+            return manifestFile;
+        }
+
+        /**
+         * @return the files of the search index, empty if there is no search index.
+         */
+        List<File> writeSearchIndex() throws IOException {
+            if (search == null) {
+                return Collections.emptyList();
+            }
+            List<File> files = search.write(getSearchDirectory());
+            for (File file : files) {
+                compress(file, false);
+            }
+            return files;
+        }
+
+        /**
+         * Write the gzip sibling of the given generated file if enabled and worth it.
+         *
+         * @param modified {@code true} if the file has just been written, otherwise the sibling is only
+         *                 written if it is not up to date.
+         */
+        void compress(File file, boolean modified) throws IOException {
+            if (!gzip || Gzip.isCompressed(file.getName()) || (!modified && Gzip.isUpToDate(file))) {
+                return;
+            }
+            long start = System.nanoTime();
+            Gzip.compress(file);
+            statistics.record(BuildStatistics.Phase.GZIP, start);
+        }
+
+        /**
+         * @return the archive entry of the generated file if the archive is streamed, {@code null} otherwise.
+         */
+        DocsArchive.Entry generate(String includedFile) throws IOException {
+            boolean document = isDocument(includedFile);
+            if (assets == null || document) {
+                return generate(includedFile, document);
+            }
+            // the pages referencing the previous content of the resource are rendered again
+            assets.remove(includedFile);
+            DocsArchive.Entry entry = generate(includedFile, false);
+            for (String page : assets.getReferencingPages(includedFile.replace(File.separatorChar, '/'))) {
+                generate(page, true);
+            }
+            return entry;
+        }
+
+        /**
+         * @param document {@code true} if the file is a Markdown document to transform, {@code false} if it's a static resource to copy.
+         * @return the archive entry of the generated file if the archive is streamed, {@code null} otherwise.
+         */
+        DocsArchive.Entry generate(String includedFile, boolean document) throws IOException {
+            links.addFile(getDestinationPath(includedFile));
+            File destinationFile;
+            if (document) {
+                destinationFile = transform(includedFile);
+            } else if (assets != null) {
+                fingerprint(includedFile);
+                return archived ? archiveAsset(includedFile) : null;
+            } else {
+                destinationFile = copy(includedFile);
+            }
+            if (archived) {
+                return archive(destinationFile);
+            }
+            return null;
+        }
+
+        DocsArchive.Entry archive(File destinationFile) throws IOException {
+            return archive(getOutputPath(destinationFile), destinationFile);
+        }
+
+        /**
+         * @return the archive entry of the fingerprinted file of the resource, read from the resource itself
+         * as the fingerprinted file may be written concurrently by an other resource with the same content.
+         */
+        DocsArchive.Entry archiveAsset(String includedFile) throws IOException {
+            return archive(assets.getAssetPath(includedFile.replace(File.separatorChar, '/')), getInputFile(includedFile));
+        }
+
+        private DocsArchive.Entry archive(String name, File file) throws IOException {
+            long start = System.nanoTime();
+            DocsArchive.Entry entry = DocsArchive.compress(name, file, archiveTime);
+            statistics.record(BuildStatistics.Phase.ARCHIVE, start);
+            return entry;
+        }
+
+        private File transform(String includedFile) throws IOException {
+            long start = System.nanoTime();
+            ByteBuffer content = SourceFile.read(getInputFile(includedFile));
+            int size = content.remaining();
+            statistics.recordFile(size);
+            long time = statistics.record(BuildStatistics.Phase.READ, start);
+            File destinationFile = getDestinationFileForTransformation(includedFile);
+            if (manifest.update(includedFile, BuildManifest.fingerprint(content)) && destinationFile.exists()
+                    && links.reusePage(includedFile) && (search == null || search.reusePage(includedFile))
+                    && (assets == null || assets.reusePage(includedFile))) {
+                getLog().debug("Skip unchanged file: " + includedFile);
+                compress(destinationFile, false);
+                return destinationFile;
+            }
+            getLog().debug("Transform file: " + includedFile);
+            Page page = render(includedFile, content);
+            links.addPage(includedFile, page);
+            if (search != null) {
+                search.addPage(includedFile, page);
+            }
+            time = statistics.record(BuildStatistics.Phase.RENDER, time);
+            createParentDirs(destinationFile);
+            getLog().debug("Document title: " + page.getTitle());
+            try (Writer writer = Files.newWriter(destinationFile, charset)) {
+                if (assets != null) {
+                    // the merged page is rewritten, so the references of the template and of the navigation are too
+                    StringWriter merged = new StringWriter();
+                    merge(page, destinationFile, merged);
+                    writer.write(assets.rewrite(includedFile, merged.toString()));
+                } else {
+                    merge(page, destinationFile, writer);
+                }
+            }
+            statistics.record(BuildStatistics.Phase.WRITE, time);
+            compress(destinationFile, true);
+            statistics.recordDocument(includedFile, start, size);
+            return destinationFile;
+        }
+
+        /**
+         * Render the Markdown document into the same page as the generated one, without writing nor recording it.
+         *
+         * @return the page encoded with the charset of the generation.
+         */
+        byte[] renderPage(String includedFile) throws IOException {
+            Page page = render(includedFile, SourceFile.read(getInputFile(includedFile)));
+            StringWriter writer = new StringWriter();
+            merge(page, getDestinationFileForTransformation(includedFile), writer);
+            return writer.toString().getBytes(charset);
+        }
+
+        Charset getCharset() {
+            return charset;
+        }
+
+        Path getTargetCss() {
+            return targetCss;
+        }
+
+        private void merge(Page page, File destinationFile, Writer writer) throws IOException {
+            Map<String, String> values = new HashMap<>();
+            values.put(Template.TITLE, Markdowns.escapeHtml(page.getTitle()));
+            values.put(Template.CSS, getCssRelativePath(targetCss, destinationFile));
+            values.put(Template.CONTENT, page.getHtml());
+            if (template.hasVariable(Template.TOC)) {
+                values.put(Template.TOC, page.getTableOfContents());
+            }
+            if (navigation != null) {
+                values.put(Template.NAV, navigation.getHtml(getOutputPath(destinationFile)));
+            }
+            template.merge(values, writer);
+        }
+
+        /**
+         * Render the Markdown document, or get it from the cache of the rendered pages if any.
+         *
+         * @throws RenderingException if the document cannot be rendered, or not in time, and the
+         *                            {@link #timeoutAction} is {@code FAIL}.
+         */
+        private Page render(String includedFile, ByteBuffer content) throws CharacterCodingException {
+            String key = null;
+            if (fragmentCache != null) {
+                key = fragmentCache.key(content, charset.name());
+                Page page = fragmentCache.get(key);
+                if (page != null) {
+                    return page;
+                }
+            }
+            char[] document = SourceFile.decode(content, charset);
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                return unrendered(includedFile, document, new RenderingTimeoutException("Cannot render " + includedFile
+                        + ": the time budget of " + timeBudget + " ms is exhausted"));
+            }
+            Page page;
+            long start = System.nanoTime();
+            MarkdownRenderer renderer = renderers.acquire();
+            try {
+                page = renderer.render(document);
+            } catch (RenderingTimeoutException e) {
+                return unrendered(includedFile, document, new RenderingTimeoutException("Cannot render " + includedFile + ": "
+                        + e.getMessage() + " after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms", e));
+            } catch (RenderingException e) {
+                return unrendered(includedFile, document, new RenderingException("Cannot render " + includedFile + ": " + e.getMessage(), e));
+            } finally {
+                renderers.release(renderer);
+            }
+            if (fragmentCache != null) {
+                try {
+                    fragmentCache.put(key, page);
+                } catch (IOException e) {
+                    getLog().warn("Cannot write the rendered page into the cache: " + cacheDirectory, e);
+                }
+            }
+            return page;
+        }
+
+        /**
+         * Handle a document which cannot be rendered, or not in time, according to the {@link #timeoutAction}.
+         * Its preformatted page is not cached and its source is invalidated to be rendered again by the next generation.
+         */
+        private Page unrendered(String includedFile, char[] document, RenderingException failure) {
+            if (timeoutAction == TimeoutAction.FAIL) {
+                throw failure;
+            }
+            getLog().warn(failure.getMessage() + ", generate it as preformatted text");
+            manifest.invalidate(includedFile);
+            return Page.preformatted(document);
+        }
+
+        /**
+         * @return the path of the file generated from the given source with {@code '/'} as separator.
+         */
+        private String getDestinationPath(String includedFile) {
+            if (isDocument(includedFile)) {
+                return Links.getPagePath(includedFile);
+            }
+            return includedFile.replace(File.separatorChar, '/');
+        }
+
+        /**
+         * Write the resource into its fingerprinted file, unless an other resource with the same content does
+         * or it already exists.
+         */
+        private void fingerprint(String includedFile) throws IOException {
+            long start = System.nanoTime();
+            File inputFile = getInputFile(includedFile);
+            statistics.recordFile(inputFile.length());
+            manifest.update(includedFile, BuildManifest.fingerprint(inputFile));
+            String assetPath = assets.getAssetPath(includedFile.replace(File.separatorChar, '/'));
+            if (!assets.claim(assetPath)) {
+                return;
+            }
+            File assetFile = new File(outputDir, assetPath);
+            boolean copied = false;
+            if (!assetFile.isFile() || assetFile.length() != inputFile.length()) {
+                createParentDirs(assetFile);
+                copied = FileCopier.copy(inputFile, assetFile, copyStrategy);
+            } else {
+                getLog().debug("Skip up to date file: " + includedFile);
+            }
+            statistics.record(BuildStatistics.Phase.COPY, start);
+            compress(assetFile, copied);
+        }
+
+        private File copy(String includedFile) throws IOException {
+            //just copy static resource.
+            long start = System.nanoTime();
+            File inputFile = getInputFile(includedFile);
+            statistics.recordFile(inputFile.length());
+            manifest.update(includedFile, BuildManifest.fingerprint(inputFile));
+            File destinationFileForCopy = getDestinationFileForCopy(includedFile);
+            createParentDirs(destinationFileForCopy);
+            boolean copied = FileCopier.copy(inputFile, destinationFileForCopy, copyStrategy);
+            if (!copied) {
+                getLog().debug("Skip up to date file: " + includedFile);
+            }
+            statistics.record(BuildStatistics.Phase.COPY, start);
+            compress(destinationFileForCopy, copied);
+            return destinationFileForCopy;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generate a single documentation site from the Markdown sources of all the projects of the reactor,
+ * in one pass: the files of all the projects are generated concurrently with the same template and css,
+ * the links between the projects are validated and the pages are indexed together, and a single archive
+ * is attached to the project running the goal.
+ * The sources of a project are generated under its path relative to the project running the goal,
+ * or under its artifact id if it's not one of its sub directories. The sources of the project running
+ * the goal are generated into the root of the site. The build fails if the sources of two projects would be
+ * generated into the same directory.
+ *
+ * @author Romain Gilles
+ */
+@Mojo(name = "aggregate", aggregator = true, threadSafe = true)
+public class AggregateMojo extends AbstractMarkdownMojo {
+
+    /**
+     * The directory of the Markdown sources of each project, relative to its base directory.
+     */
+    @Parameter(property = "md.aggregate.sources", defaultValue = "src/main/md")
+    private String projectSources;
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    @Parameter(defaultValue = "${basedir}", readonly = true)
+    private File basedir;
+
+    /**
+     * The source directories of the other projects by their prefix.
+     */
+    private Map<String, File> moduleSources;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("Markdown aggregate");
+        moduleSources = getModuleSources();
+        generateDocumentation(true);
+    }
+
+    @Override
+    SourceRoots newSourceRoots() {
+        Map<String, SourceScanner> scanners = new LinkedHashMap<>();
+        scanners.put("", newSourceScanner());
+        for (Map.Entry<String, File> sourceDirectory : moduleSources.entrySet()) {
+            getLog().debug("Aggregate " + sourceDirectory.getValue() + " into: " + sourceDirectory.getKey());
+            scanners.put(sourceDirectory.getKey(), newSourceScanner(sourceDirectory.getValue()));
+        }
+        return new SourceRoots(scanners);
+    }
+
+    /**
+     * @return the existing source directories of the projects other than the one running the goal, by their prefix.
+     * @throws MojoExecutionException if several projects would be generated under the same prefix.
+     */
+    private Map<String, File> getModuleSources() throws MojoExecutionException {
+        Map<String, File> sourceDirectories = new LinkedHashMap<>();
+        Map<String, MavenProject> projects = new HashMap<>();
+        Path root = basedir.getAbsoluteFile().toPath();
+        for (MavenProject reactorProject : reactorProjects) {
+            Path projectDirectory = reactorProject.getBasedir().getAbsoluteFile().toPath();
+            if (projectDirectory.equals(root)) {
+                continue;
+            }
+            String prefix = projectDirectory.startsWith(root) ? root.relativize(projectDirectory).toString() : reactorProject.getArtifactId();
+            File sourceDirectory = projectDirectory.resolve(projectSources).toFile();
+            if (!sourceDirectory.isDirectory()) {
+                continue;
+            }
+            MavenProject other = projects.put(prefix, reactorProject);
+            if (other != null) {
+                throw new MojoExecutionException("The sources of the projects " + other.getId() + " and " + reactorProject.getId()
+                        + " are both generated into: " + prefix);
+            }
+            sourceDirectories.put(prefix, sourceDirectory);
+        }
+        return sourceDirectories;
+    }
+}
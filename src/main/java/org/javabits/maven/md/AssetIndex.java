@@ -0,0 +1,350 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.io.Files.createParentDirs;
+import static com.google.common.io.Files.getFileExtension;
+
+/**
+ * Content addressed store of the static resources: each resource is written into the {@code md-assets}
+ * directory under the name {@code <hash>.<extension>} of its content, so the identical resources are stored
+ * once and the names change with the content, and can be served with long-lived cache headers.
+ * The references of the pages to the resources ({@code src} and {@code href} attributes), including the ones
+ * of the template and of the navigation merged into them, are rewritten into references to the fingerprinted
+ * files, and the {@code md-assets.json} manifest maps the path of each resource to the path of its
+ * fingerprinted file, both relative to the output directory.
+ * The fingerprinted files referenced by the pages are stored along with the build manifest, so a page skipped
+ * by an incremental generation is rendered again if one of its resources changed, and the fingerprinted file
+ * of each resource is stored with the size and the modification time of the resource, so an unchanged resource
+ * is not hashed again. The resources and the pages can be added concurrently.
+ *
+ * @author Romain Gilles
+ */
+final class AssetIndex {
+
+    static final String FILE_NAME = "md-assets.properties";
+    /**
+     * The directory of the fingerprinted files relative to the output directory.
+     */
+    static final String DIRECTORY = "md-assets";
+    static final String MANIFEST_FILE_NAME = "md-assets.json";
+    private static final int HASH_LENGTH = 16;
+    private static final String SETTINGS_KEY = "settings";
+    private static final String PAGE_PREFIX = "page.";
+    private static final String ASSET_PREFIX = "asset.";
+    private static final char SEPARATOR = '\n';
+    private static final char ASSET_SEPARATOR = '\t';
+    /**
+     * The fingerprint of a path which is not an included static resource.
+     */
+    private static final String NONE = "";
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("(\\s(?:src|href)\\s*=\\s*\")([^\"]*)\"");
+
+    private final File file;
+    private final String settings;
+    private final SourceRoots sources;
+    private final Map<String, Map<String, String>> previousPages;
+    /**
+     * The fingerprinted files of the resources of the previous generation, by the fingerprint of the resources.
+     */
+    private final Map<String, Map.Entry<String, String>> previousAssets;
+    private final Map<String, Map<String, String>> pages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> assets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Set<String> claimedAssets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private AssetIndex(File file, String settings, SourceRoots sources, Map<String, Map<String, String>> previousPages,
+                       Map<String, Map.Entry<String, String>> previousAssets) {
+        this.file = file;
+        this.settings = settings;
+        this.sources = sources;
+        this.previousPages = previousPages;
+        this.previousAssets = previousAssets;
+    }
+
+    /**
+     * Load the fingerprinted files of the resources and the ones referenced by the pages of the previous generation.
+     * If the file does not exist or if the settings differ, the index is empty.
+     *
+     * @param sources the source directories, to tell the included static resources.
+     */
+    static AssetIndex load(File file, String settings, SourceRoots sources) throws IOException {
+        Map<String, Map<String, String>> previousPages = new HashMap<>();
+        Map<String, Map.Entry<String, String>> previousAssets = new HashMap<>();
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            }
+            if (settings.equals(properties.getProperty(SETTINGS_KEY))) {
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(PAGE_PREFIX)) {
+                        Map<String, String> references = new HashMap<>();
+                        for (String reference : Splitter.on(SEPARATOR).omitEmptyStrings().split(properties.getProperty(key))) {
+                            int index = reference.indexOf(ASSET_SEPARATOR);
+                            references.put(reference.substring(0, index), reference.substring(index + 1));
+                        }
+                        previousPages.put(key.substring(PAGE_PREFIX.length()), references);
+                    } else if (key.startsWith(ASSET_PREFIX)) {
+                        String asset = properties.getProperty(key);
+                        int index = asset.indexOf(ASSET_SEPARATOR);
+                        previousAssets.put(key.substring(ASSET_PREFIX.length()),
+                                Maps.immutableEntry(asset.substring(0, index), asset.substring(index + 1)));
+                    }
+                }
+            }
+        }
+        return new AssetIndex(file, settings, sources, previousPages, previousAssets);
+    }
+
+    static AssetIndex empty(File file, String settings, SourceRoots sources) {
+        return new AssetIndex(file, settings, sources, Collections.<String, Map<String, String>>emptyMap(),
+                Collections.<String, Map.Entry<String, String>>emptyMap());
+    }
+
+    /**
+     * @return the path of the fingerprinted file of the given content relative to the output directory,
+     * with {@code '/'} as separator.
+     */
+    static String getAssetPath(File content, String extension) throws IOException {
+        String hash = Files.hash(content, BuildManifest.HASH_FUNCTION).toString().substring(0, HASH_LENGTH);
+        return DIRECTORY + '/' + hash + (extension.isEmpty() ? "" : '.' + extension.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Add a file which is not a resource of the sources directory, such as the css.
+     *
+     * @param path      the path of the file relative to the output directory, with {@code '/'} as separator.
+     * @param assetPath the path of its fingerprinted file.
+     */
+    void add(String path, String assetPath) {
+        assets.put(path, assetPath);
+    }
+
+    /**
+     * @param resource the path of the resource relative to the output directory, with {@code '/'} as separator.
+     * @return the path of its fingerprinted file, or {@code null} if it's not an included static resource.
+     */
+    String getAssetPath(String resource) throws IOException {
+        String assetPath = assets.get(resource);
+        if (assetPath == null) {
+            assetPath = NONE;
+            String includedFile = resource.replace('/', File.separatorChar);
+            File resourceFile = sources.getFile(includedFile);
+            if (resourceFile != null && resourceFile.isFile() && sources.isIncluded(includedFile) && !sources.isDocument(includedFile)) {
+                String fingerprint = BuildManifest.fingerprint(resourceFile);
+                Map.Entry<String, String> previousAsset = previousAssets.get(resource);
+                if (previousAsset != null && previousAsset.getKey().equals(fingerprint)) {
+                    assetPath = previousAsset.getValue();
+                } else {
+                    assetPath = getAssetPath(resourceFile, getFileExtension(resource));
+                }
+                fingerprints.put(resource, fingerprint);
+            }
+            assets.putIfAbsent(resource, assetPath);
+        }
+        return assetPath.isEmpty() ? null : assetPath;
+    }
+
+    /**
+     * Claim the writing of a fingerprinted file, as several resources may have the same content.
+     *
+     * @return {@code true} if the caller is the first one to claim it and must write it.
+     */
+    boolean claim(String assetPath) {
+        return claimedAssets.add(assetPath);
+    }
+
+    /**
+     * Rewrite the references of the page to the static resources into references to their fingerprinted files.
+     *
+     * @param source the Markdown document of the page.
+     * @param html   the html of the page.
+     * @return the rewritten html.
+     */
+    String rewrite(String source, String html) throws IOException {
+        String pagePath = Links.getPagePath(source);
+        Map<String, String> references = new HashMap<>();
+        Matcher matcher = REFERENCE_PATTERN.matcher(html);
+        StringBuffer rewritten = new StringBuffer(html.length());
+        while (matcher.find()) {
+            String href = matcher.group(2);
+            String resource = getResource(pagePath, href);
+            String assetPath = resource != null ? getAssetPath(resource) : null;
+            if (resource != null) {
+                references.put(resource, assetPath != null ? assetPath : NONE);
+            }
+            if (assetPath != null) {
+                href = Links.relativize(pagePath, assetPath) + href.substring(Links.getPathEnd(href));
+            }
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(matcher.group(1) + href + '"'));
+        }
+        matcher.appendTail(rewritten);
+        pages.put(source, references);
+        return rewritten.toString();
+    }
+
+    /**
+     * Reuse the references of the page recorded by the previous generation.
+     *
+     * @return {@code false} if the page was not recorded by the previous generation or if
+     * the fingerprinted file of one of its resources changed.
+     */
+    boolean reusePage(String source) throws IOException {
+        Map<String, String> references = previousPages.get(source);
+        if (references == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> reference : references.entrySet()) {
+            String assetPath = getAssetPath(reference.getKey());
+            if (!reference.getValue().equals(assetPath != null ? assetPath : NONE)) {
+                return false;
+            }
+        }
+        pages.put(source, references);
+        return true;
+    }
+
+    /**
+     * @return the Markdown documents of the pages referencing the given resource, in the sources order.
+     */
+    Set<String> getReferencingPages(String resource) {
+        Set<String> referencingPages = new TreeSet<>();
+        for (Map.Entry<String, Map<String, String>> page : pages.entrySet()) {
+            if (page.getValue().containsKey(resource)) {
+                referencingPages.add(page.getKey());
+            }
+        }
+        return referencingPages;
+    }
+
+    /**
+     * Forget a modified or deleted source: its fingerprint if it's a resource and its references if it's a document.
+     */
+    void remove(String source) {
+        String resource = source.replace(File.separatorChar, '/');
+        String assetPath = assets.remove(resource);
+        fingerprints.remove(resource);
+        if (assetPath != null) {
+            claimedAssets.remove(assetPath);
+        }
+        pages.remove(source);
+    }
+
+    /**
+     * Write the manifest of the fingerprinted files into the output directory, unless it did not change,
+     * and delete the fingerprinted files which are not part of the current generation, and their gzip siblings.
+     *
+     * @return the manifest file.
+     */
+    File write(File outputDir) throws IOException {
+        Map<String, String> sortedAssets = new TreeMap<>();
+        for (Map.Entry<String, String> asset : assets.entrySet()) {
+            if (!asset.getValue().isEmpty()) {
+                sortedAssets.put(asset.getKey(), asset.getValue());
+            }
+        }
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, String> asset : sortedAssets.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("\n\"").append(Markdowns.escapeJson(asset.getKey())).append("\":\"")
+                    .append(Markdowns.escapeJson(asset.getValue())).append('"');
+        }
+        json.append("\n}\n");
+        File manifestFile = new File(outputDir, MANIFEST_FILE_NAME);
+        String content = json.toString();
+        if (!manifestFile.isFile() || !content.equals(Files.toString(manifestFile, Charsets.UTF_8))) {
+            createParentDirs(manifestFile);
+            Files.write(content, manifestFile, Charsets.UTF_8);
+        }
+        deleteStaleAssets(new File(outputDir, DIRECTORY), sortedAssets.values());
+        return manifestFile;
+    }
+
+    private static void deleteStaleAssets(File directory, Collection<String> assetPaths) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> liveFiles = new HashSet<>();
+        for (String assetPath : assetPaths) {
+            File assetFile = new File(directory, assetPath.substring(DIRECTORY.length() + 1));
+            liveFiles.add(assetFile.getName());
+            liveFiles.add(Gzip.getSibling(assetFile).getName());
+        }
+        for (File assetFile : files) {
+            if (assetFile.isFile() && !liveFiles.contains(assetFile.getName())) {
+                if (!assetFile.delete()) {
+                    throw new IOException("Cannot delete the stale asset: " + assetFile);
+                }
+                Gzip.deleteSibling(assetFile);
+            }
+        }
+    }
+
+    void store() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SETTINGS_KEY, settings);
+        for (Map.Entry<String, Map<String, String>> page : pages.entrySet()) {
+            List<String> references = new ArrayList<>();
+            for (Map.Entry<String, String> reference : new TreeMap<>(page.getValue()).entrySet()) {
+                references.add(reference.getKey() + ASSET_SEPARATOR + reference.getValue());
+            }
+            properties.setProperty(PAGE_PREFIX + page.getKey(), Joiner.on(SEPARATOR).join(references));
+        }
+        for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+            String assetPath = assets.get(fingerprint.getKey());
+            if (assetPath != null && !assetPath.isEmpty()) {
+                properties.setProperty(ASSET_PREFIX + fingerprint.getKey(), fingerprint.getValue() + ASSET_SEPARATOR + assetPath);
+            }
+        }
+        createParentDirs(file);
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "Markdown assets");
+        }
+    }
+
+    /**
+     * @return the path of the target of the reference relative to the root of the site,
+     * or {@code null} if it does not target a file of the site.
+     */
+    private static String getResource(String pagePath, String href) {
+        if (href.isEmpty() || Links.isExternal(href)) {
+            return null;
+        }
+        String path = Links.getPath(href);
+        if (path.isEmpty()) {
+            return null;
+        }
+        return Links.resolve(pagePath, path);
+    }
+}
@@ -0,0 +1,221 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.io.Files.createParentDirs;
+
+/**
+ * Keep track of the inputs used by the previous generation to be able to skip
+ * the files that did not change since then.
+ * The manifest is a simple properties file that map each source path to the
+ * fingerprint of its content. The global settings (parser options, template, css...)
+ * are also recorded, if they change then all the files are considered as modified,
+ * but the sources of the previous generation are still known to detect the removed ones.
+ * The digest of the content of the documentation archive is recorded to skip its production
+ * when the output did not change. The sources can be updated concurrently.
+ *
+ * @author Romain Gilles
+ */
+final class BuildManifest {
+
+    static final String FILE_NAME = "md-manifest.properties";
+    /**
+     * Version of the generated output, it must be increased each time the generation
+     * of a page changes to invalidate the pages generated by the previous versions.
+     */
+    static final String VERSION = "3";
+    static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final String SETTINGS_KEY = "settings";
+    private static final String SOURCE_PREFIX = "source.";
+    private static final String ARCHIVE_KEY = "archive";
+
+    private final File file;
+    private final String settings;
+    /**
+     * The fingerprints of the sources of the previous generation, empty if they cannot be reused.
+     */
+    private final Map<String, String> previousSources;
+    /**
+     * The sources of the previous generation, whether their fingerprints can be reused or not.
+     */
+    private final Set<String> previousSourcePaths;
+    private final Map<String, String> currentSources = new ConcurrentHashMap<>();
+    private volatile String archiveDigest;
+
+    private BuildManifest(File file, String settings, Map<String, String> previousSources, Set<String> previousSourcePaths,
+                          String archiveDigest) {
+        this.file = file;
+        this.settings = settings;
+        this.previousSources = previousSources;
+        this.previousSourcePaths = previousSourcePaths;
+        this.archiveDigest = archiveDigest;
+    }
+
+    /**
+     * Load the manifest of the previous generation.
+     * If the file does not exist or if the settings differ, all the files will be considered as modified.
+     *
+     * @param file     the manifest file.
+     * @param settings the fingerprint of the global settings of the current generation.
+     * @return the manifest to use for the current generation.
+     * @throws IOException if the existing manifest cannot be read.
+     */
+    static BuildManifest load(File file, String settings) throws IOException {
+        return load(file, settings, true);
+    }
+
+    /**
+     * Load only the sources of the previous generation, to detect the removed ones when the files
+     * are all generated again: all the files will be considered as modified.
+     *
+     * @throws IOException if the existing manifest cannot be read.
+     */
+    static BuildManifest loadSources(File file, String settings) throws IOException {
+        return load(file, settings, false);
+    }
+
+    private static BuildManifest load(File file, String settings, boolean incremental) throws IOException {
+        Map<String, String> previousSources = new HashMap<>();
+        Set<String> previousSourcePaths = new HashSet<>();
+        String archiveDigest = null;
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            }
+            boolean reusable = incremental && settings.equals(properties.getProperty(SETTINGS_KEY));
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(SOURCE_PREFIX)) {
+                    String source = key.substring(SOURCE_PREFIX.length());
+                    previousSourcePaths.add(source);
+                    if (reusable) {
+                        previousSources.put(source, properties.getProperty(key));
+                    }
+                }
+            }
+            if (reusable) {
+                archiveDigest = properties.getProperty(ARCHIVE_KEY);
+            }
+        }
+        return new BuildManifest(file, settings, previousSources, previousSourcePaths, archiveDigest);
+    }
+
+    /**
+     * @return the fingerprint of the global settings of the current generation.
+     */
+    String getSettings() {
+        return settings;
+    }
+
+    static BuildManifest empty(File file, String settings) {
+        return new BuildManifest(file, settings, Collections.<String, String>emptyMap(), Collections.<String>emptySet(), null);
+    }
+
+    static String fingerprint(ByteBuffer content) {
+        return SourceFile.putBytes(HASH_FUNCTION.newHasher(), content).hash().toString();
+    }
+
+    static String fingerprint(File file) {
+        return file.length() + ":" + file.lastModified();
+    }
+
+    static String fingerprint(String... values) {
+        HashCode hashCode = HASH_FUNCTION.hashString(Joiner.on('\0').useForNull("").join(values));
+        return hashCode.toString();
+    }
+
+    /**
+     * Record the fingerprint of the given source for the current generation and
+     * tell if it is the same as the one of the previous generation.
+     *
+     * @param source      the relative path of the source file.
+     * @param fingerprint the fingerprint of the source file content.
+     * @return {@code true} if the source did not change since the previous generation.
+     */
+    boolean update(String source, String fingerprint) {
+        currentSources.put(source, fingerprint);
+        return fingerprint.equals(previousSources.get(source));
+    }
+
+    /**
+     * Record the source for the current generation with a fingerprint matching no content,
+     * so it is generated again by the next generation.
+     */
+    void invalidate(String source) {
+        currentSources.put(source, "");
+    }
+
+    void remove(String source) {
+        currentSources.remove(source);
+    }
+
+    /**
+     * @return the sources recorded by the previous generation that are not part of the current one.
+     */
+    Set<String> getRemovedSources() {
+        Set<String> removedSources = new HashSet<>(previousSourcePaths);
+        removedSources.removeAll(currentSources.keySet());
+        return removedSources;
+    }
+
+    /**
+     * @return the digest of the settings and of all the sources of the current generation,
+     * as the output is derived from them it's also the digest of the output.
+     */
+    String getDigest() {
+        Hasher hasher = HASH_FUNCTION.newHasher().putString(settings, Charsets.UTF_8);
+        for (Map.Entry<String, String> source : new TreeMap<>(currentSources).entrySet()) {
+            hasher.putString(source.getKey(), Charsets.UTF_8).putByte((byte) 0)
+                    .putString(source.getValue(), Charsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @return the digest of the content of the existing documentation archive, or {@code null} if unknown.
+     */
+    String getArchiveDigest() {
+        return archiveDigest;
+    }
+
+    void setArchiveDigest(String archiveDigest) {
+        this.archiveDigest = archiveDigest;
+    }
+
+    void store() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SETTINGS_KEY, settings);
+        if (archiveDigest != null) {
+            properties.setProperty(ARCHIVE_KEY, archiveDigest);
+        }
+        for (Map.Entry<String, String> source : currentSources.entrySet()) {
+            properties.setProperty(SOURCE_PREFIX + source.getKey(), source.getValue());
+        }
+        createParentDirs(file);
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "Markdown generation manifest");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.io.Files.createParentDirs;
+import static com.google.common.io.Files.newWriter;
+
+/**
+ * Collect the time spent in each phase of the generation and for each document.
+ * The phases are recorded concurrently by the generation threads, so the time of a phase
+ * is the sum of the time spent by all the threads and can be greater than the build duration.
+ *
+ * @author Romain Gilles
+ */
+final class BuildStatistics {
+
+    enum Phase {
+        /**
+         * Discovery of the source files.
+         */
+        SCAN,
+        /**
+         * Read of the Markdown documents.
+         */
+        READ,
+        /**
+         * Parse of the Markdown documents and serialization of the html.
+         */
+        RENDER,
+        /**
+         * Merge of the html into the template and write of the pages.
+         */
+        WRITE,
+        /**
+         * Copy of the static resources.
+         */
+        COPY,
+        /**
+         * Compression of the gzip siblings of the generated files.
+         */
+        GZIP,
+        /**
+         * Compression and write of the documentation archive.
+         */
+        ARCHIVE;
+
+        String label() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private static final double MEGA_BYTE = 1024 * 1024;
+
+    private final long start = System.nanoTime();
+    private final AtomicLongArray phaseTimes = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Queue<DocumentStatistics> documents = new ConcurrentLinkedQueue<>();
+    private volatile long end;
+
+    /**
+     * Record the time spent in the given phase since the start time.
+     *
+     * @param phase     the recorded phase.
+     * @param startTime the start time of the phase as given by {@link System#nanoTime()}.
+     * @return the current time, usable as start time of the next phase.
+     */
+    long record(Phase phase, long startTime) {
+        long now = System.nanoTime();
+        phaseTimes.addAndGet(phase.ordinal(), now - startTime);
+        phaseCounts.incrementAndGet(phase.ordinal());
+        return now;
+    }
+
+    /**
+     * Record a processed source file.
+     *
+     * @param size the size of the source file in bytes.
+     */
+    void recordFile(long size) {
+        files.incrementAndGet();
+        bytes.addAndGet(size);
+    }
+
+    /**
+     * Record the total time spent to generate a Markdown document.
+     */
+    void recordDocument(String document, long startTime, long size) {
+        documents.add(new DocumentStatistics(document, System.nanoTime() - startTime, size));
+    }
+
+    void stop() {
+        end = System.nanoTime();
+    }
+
+    private long getDuration() {
+        return (end != 0 ? end : System.nanoTime()) - start;
+    }
+
+    private List<DocumentStatistics> getSlowestDocuments() {
+        List<DocumentStatistics> slowestDocuments = new ArrayList<>(documents);
+        Collections.sort(slowestDocuments, new Comparator<DocumentStatistics>() {
+            @Override
+            public int compare(DocumentStatistics document1, DocumentStatistics document2) {
+                return Long.compare(document2.time, document1.time);
+            }
+        });
+        return slowestDocuments;
+    }
+
+    /**
+     * @param top the number of slowest documents to list.
+     * @return the human readable summary lines.
+     */
+    List<String> getSummary(int top) {
+        List<String> summary = new ArrayList<>();
+        double seconds = getDuration() / 1e9;
+        summary.add(String.format(Locale.ENGLISH, "Generated %d files (%.2f MB) in %.3f s: %.1f files/s, %.2f MB/s",
+                files.get(), bytes.get() / MEGA_BYTE, seconds, files.get() / seconds, bytes.get() / MEGA_BYTE / seconds));
+        for (Phase phase : Phase.values()) {
+            if (phaseCounts.get(phase.ordinal()) > 0) {
+                summary.add(String.format(Locale.ENGLISH, "  %-8s %6d x %10.3f s",
+                        phase.label(), phaseCounts.get(phase.ordinal()), phaseTimes.get(phase.ordinal()) / 1e9));
+            }
+        }
+        List<DocumentStatistics> slowestDocuments = getSlowestDocuments();
+        if (top > 0 && !slowestDocuments.isEmpty()) {
+            summary.add("Slowest documents:");
+            for (DocumentStatistics document : slowestDocuments.subList(0, Math.min(top, slowestDocuments.size()))) {
+                summary.add(String.format(Locale.ENGLISH, "  %10.3f ms  %s", document.time / 1e6, document.name));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Write the statistics as a json document into the given file.
+     */
+    void writeJson(File file) throws IOException {
+        createParentDirs(file);
+        try (Writer writer = newWriter(file, Charsets.UTF_8)) {
+            writer.append("{\n");
+            writer.append("  \"durationMs\": ").append(toMillis(getDuration())).append(",\n");
+            writer.append("  \"files\": ").append(String.valueOf(files.get())).append(",\n");
+            writer.append("  \"bytes\": ").append(String.valueOf(bytes.get())).append(",\n");
+            writer.append("  \"phases\": {");
+            String separator = "\n";
+            for (Phase phase : Phase.values()) {
+                writer.append(separator).append("    \"").append(phase.label()).append("\": {\"count\": ")
+                        .append(String.valueOf(phaseCounts.get(phase.ordinal())))
+                        .append(", \"timeMs\": ").append(toMillis(phaseTimes.get(phase.ordinal()))).append('}');
+                separator = ",\n";
+            }
+            writer.append("\n  },\n");
+            writer.append("  \"documents\": [");
+            separator = "\n";
+            for (DocumentStatistics document : getSlowestDocuments()) {
+                writer.append(separator).append("    {\"name\": \"").append(Markdowns.escapeJson(document.name))
+                        .append("\", \"timeMs\": ").append(toMillis(document.time))
+                        .append(", \"bytes\": ").append(String.valueOf(document.size)).append('}');
+                separator = ",\n";
+            }
+            writer.append("\n  ]\n}\n");
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", TimeUnit.NANOSECONDS.toMicros(nanos) / 1e3);
+    }
+
+    private static final class DocumentStatistics {
+        private final String name;
+        private final long time;
+        private final long size;
+
+        private DocumentStatistics(String name, long time, long size) {
+            this.name = name;
+            this.time = time;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.javabits.maven.md;
+
+import org.commonmark.Extension;
+import org.commonmark.ext.autolink.AutolinkExtension;
+import org.commonmark.ext.gfm.tables.TablesExtension;
+import org.commonmark.node.AbstractVisitor;
+import org.commonmark.node.Code;
+import org.commonmark.node.FencedCodeBlock;
+import org.commonmark.node.HardLineBreak;
+import org.commonmark.node.HtmlBlock;
+import org.commonmark.node.HtmlInline;
+import org.commonmark.node.IndentedCodeBlock;
+import org.commonmark.node.Link;
+import org.commonmark.node.Node;
+import org.commonmark.node.SoftLineBreak;
+import org.commonmark.node.Text;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.NodeRenderer;
+import org.commonmark.renderer.html.AttributeProvider;
+import org.commonmark.renderer.html.AttributeProviderContext;
+import org.commonmark.renderer.html.AttributeProviderFactory;
+import org.commonmark.renderer.html.HtmlNodeRendererContext;
+import org.commonmark.renderer.html.HtmlNodeRendererFactory;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.pegdown.Extensions;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Transform Markdown documents into {@link Page pages} using the CommonMark parser.
+ * Unlike the pegdown PEG parser, the parsing time is linear with the size of the document.
+ * As for the {@link PegDownRenderer}, the document is parsed once and the headings are rendered
+ * with an id attribute, the relative links to the Markdown documents are rewritten into links to the generated pages
+ * and the search terms are extracted from the parse tree.
+ * A renderer is not thread safe, it holds the headings and the links of the document being rendered.
+ *
+ * @author Romain Gilles
+ */
+final class CommonMarkRenderer implements MarkdownRenderer {
+
+    /**
+     * The fenced code blocks are part of the CommonMark specification, they are always enabled.
+     */
+    static final int SUPPORTED_OPTIONS = Extensions.TABLES | Extensions.AUTOLINKS | Extensions.FENCED_CODE_BLOCKS
+            | Extensions.HARDWRAPS | Extensions.SUPPRESS_ALL_HTML;
+
+    private static final String HARD_WRAP = "<br />\n";
+
+    private final Parser parser;
+    private final HtmlRenderer htmlRenderer;
+    private final String sourceExtension;
+    private final Map<Node, Heading> headings = new IdentityHashMap<>();
+    private final List<String> links = new ArrayList<>();
+
+    CommonMarkRenderer(int options, String sourceExtension) {
+        this.sourceExtension = sourceExtension;
+        List<Extension> extensions = new ArrayList<>();
+        if ((options & Extensions.TABLES) != 0) {
+            extensions.add(TablesExtension.create());
+        }
+        if ((options & Extensions.AUTOLINKS) != 0) {
+            extensions.add(AutolinkExtension.create());
+        }
+        this.parser = Parser.builder().extensions(extensions).build();
+        final boolean suppressHtmlBlocks = (options & Extensions.SUPPRESS_HTML_BLOCKS) != 0;
+        final boolean suppressInlineHtml = (options & Extensions.SUPPRESS_INLINE_HTML) != 0;
+        HtmlRenderer.Builder builder = HtmlRenderer.builder()
+                .extensions(extensions)
+                .attributeProviderFactory(new AttributeProviderFactory() {
+                    @Override
+                    public AttributeProvider create(AttributeProviderContext context) {
+                        return new HeadingIdLinkProvider();
+                    }
+                });
+        if (suppressHtmlBlocks || suppressInlineHtml) {
+            builder.nodeRendererFactory(new HtmlNodeRendererFactory() {
+                @Override
+                public NodeRenderer create(HtmlNodeRendererContext context) {
+                    return new SuppressedHtmlRenderer(suppressHtmlBlocks, suppressInlineHtml);
+                }
+            });
+        }
+        if ((options & Extensions.HARDWRAPS) != 0) {
+            builder.softbreak(HARD_WRAP);
+        }
+        this.htmlRenderer = builder.build();
+    }
+
+    @Override
+    public Page render(char[] markdownDocument) {
+        Node document = parse(markdownDocument);
+        DocumentCollector collector = new DocumentCollector();
+        document.accept(collector);
+        try {
+            String html = htmlRenderer.render(document);
+            return new Page(getTitle(document, collector.headings, markdownDocument), html, collector.headings,
+                    new ArrayList<>(links), new ArrayList<>(collector.terms));
+        } finally {
+            headings.clear();
+            links.clear();
+        }
+    }
+
+    /**
+     * Parse the document into its CommonMark tree.
+     */
+    private Node parse(char[] markdownDocument) {
+        try {
+            return parser.parseReader(new CharArrayReader(markdownDocument));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read an in memory document", e);
+        }
+    }
+
+    /**
+     * The title is the first heading if the document starts with a heading,
+     * otherwise it's the first line of text.
+     */
+    private static String getTitle(Node document, List<Heading> headings, char[] markdownDocument) {
+        if (document.getFirstChild() instanceof org.commonmark.node.Heading && !headings.isEmpty()) {
+            String title = headings.get(0).getText();
+            if (!title.isEmpty()) {
+                return title;
+            }
+        }
+        return Markdowns.getTitle(CharBuffer.wrap(markdownDocument));
+    }
+
+    private static String getText(Node heading) {
+        final StringBuilder text = new StringBuilder();
+        heading.accept(new AbstractVisitor() {
+            @Override
+            public void visit(Text textNode) {
+                text.append(textNode.getLiteral());
+            }
+
+            @Override
+            public void visit(Code code) {
+                text.append(code.getLiteral());
+            }
+
+            @Override
+            public void visit(SoftLineBreak softLineBreak) {
+                text.append(' ');
+            }
+
+            @Override
+            public void visit(HardLineBreak hardLineBreak) {
+                text.append(' ');
+            }
+        });
+        return text.toString().trim();
+    }
+
+    /**
+     * Collect the headings and the search terms of the document, the raw html is not indexed.
+     */
+    private class DocumentCollector extends AbstractVisitor {
+        private final List<Heading> headings = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+        private final Set<String> terms = new TreeSet<>();
+
+        @Override
+        public void visit(org.commonmark.node.Heading node) {
+            String text = getText(node);
+            Heading heading = new Heading(node.getLevel(), text, Markdowns.toUniqueId(text, ids));
+            headings.add(heading);
+            CommonMarkRenderer.this.headings.put(node, heading);
+            visitChildren(node);
+        }
+
+        @Override
+        public void visit(Text text) {
+            Markdowns.addTerms(text.getLiteral(), terms);
+        }
+
+        @Override
+        public void visit(Code code) {
+            Markdowns.addTerms(code.getLiteral(), terms);
+        }
+
+        @Override
+        public void visit(FencedCodeBlock codeBlock) {
+            Markdowns.addTerms(codeBlock.getLiteral(), terms);
+        }
+
+        @Override
+        public void visit(IndentedCodeBlock codeBlock) {
+            Markdowns.addTerms(codeBlock.getLiteral(), terms);
+        }
+    }
+
+    /**
+     * Drop the suppressed kinds of raw html as pegdown does, the other kind is rendered as is.
+     */
+    private static class SuppressedHtmlRenderer implements NodeRenderer {
+        private final Set<Class<? extends Node>> nodeTypes = new HashSet<>();
+
+        SuppressedHtmlRenderer(boolean suppressHtmlBlocks, boolean suppressInlineHtml) {
+            if (suppressHtmlBlocks) {
+                nodeTypes.add(HtmlBlock.class);
+            }
+            if (suppressInlineHtml) {
+                nodeTypes.add(HtmlInline.class);
+            }
+        }
+
+        @Override
+        public Set<Class<? extends Node>> getNodeTypes() {
+            return nodeTypes;
+        }
+
+        @Override
+        public void render(Node node) {
+        }
+    }
+
+    /**
+     * Set the id of the headings, rewrite and collect the targets of the links.
+     */
+    private class HeadingIdLinkProvider implements AttributeProvider {
+        @Override
+        public void setAttributes(Node node, String tagName, Map<String, String> attributes) {
+            if (node instanceof Link) {
+                String href = attributes.get("href");
+                if (href != null) {
+                    href = Links.rewrite(href, sourceExtension);
+                    attributes.put("href", href);
+                    links.add(href);
+                }
+                return;
+            }
+            Heading heading = headings.get(node);
+            if (heading != null) {
+                attributes.put("id", heading.getId());
+            }
+        }
+    }
+}
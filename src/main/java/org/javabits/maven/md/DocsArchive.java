@@ -0,0 +1,327 @@
+package org.javabits.maven.md;
+
+import com.google.common.io.Files;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal zip writer used to stream the documentation archive while the files are generated.
+ * Unlike {@link java.util.zip.ZipOutputStream} the entries are compressed beforehand by
+ * {@link #compress(String, byte[], long)}, so the deflate of the entries can run in parallel
+ * in the generation threads and only the write of the already compressed bytes is serialized.
+ * The already compressed files (images, archives...) are stored without recompression, the large ones are
+ * not loaded into memory but copied from their file when the entry is written.
+ * The parent directory entries are added automatically and only the first entry of a given name is kept.
+ * The archive only depends on the written entries and on their order: the time of the entries
+ * is written as UTC and no other metadata is recorded, so the same entries produce the same bytes.
+ *
+ * @author Romain Gilles
+ */
+final class DocsArchive implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int UTF_8_FLAG = 1 << 11;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int DIRECTORY_ATTRIBUTE = 0x10;
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    /**
+     * The size above which the stored files are copied from their file when written.
+     */
+    static final long STREAM_THRESHOLD = 1024 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream output;
+    private final String prefix;
+    private final List<CentralEntry> centralEntries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private long offset;
+
+    /**
+     * @param file   the archive file to create.
+     * @param prefix the path prepended to all the entry names, it must be empty or end with {@code '/'}.
+     * @throws IOException if the archive file cannot be created.
+     */
+    DocsArchive(File file, String prefix) throws IOException {
+        this.output = new BufferedOutputStream(new FileOutputStream(file));
+        this.prefix = prefix;
+    }
+
+    /**
+     * Prepare the archive entry of a file. This method is thread safe and is meant to
+     * be called from the generation threads.
+     *
+     * @param name    the entry name relative to the archive prefix with {@code '/'} as separator.
+     * @param content the content of the file.
+     * @param time    the last modification time of the file.
+     * @return the entry ready to be written into the archive.
+     */
+    static Entry compress(String name, byte[] content, long time) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (!Gzip.isCompressed(name)) {
+            byte[] deflated = deflate(content);
+            if (deflated.length < content.length) {
+                return new Entry(name, DEFLATED, deflated, null, content.length, crc.getValue(), time);
+            }
+        }
+        return new Entry(name, STORED, content, null, content.length, crc.getValue(), time);
+    }
+
+    /**
+     * Prepare the archive entry of a file, as {@link #compress(String, byte[], long)} but the large
+     * already compressed files are neither loaded into memory nor recompressed: only their checksum is computed
+     * and they are copied from the file when the entry is written.
+     *
+     * @param name the entry name relative to the archive prefix with {@code '/'} as separator.
+     * @param file the file to archive, it must not be modified until the entry is written.
+     * @param time the last modification time of the file.
+     * @return the entry ready to be written into the archive.
+     */
+    static Entry compress(String name, File file, long time) throws IOException {
+        if (!Gzip.isCompressed(name) || file.length() <= STREAM_THRESHOLD) {
+            return compress(name, Files.toByteArray(file), time);
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = input.read(buffer)) >= 0) {
+                crc.update(buffer, 0, length);
+                size += length;
+            }
+        }
+        if (size > MAX_VALUE) {
+            throw new IOException("The file is too large to be archived, zip64 is not supported: " + file);
+        }
+        return new Entry(name, STORED, null, file, size, crc.getValue(), time);
+    }
+
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(Math.max(content.length / 2, 64));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                deflated.write(buffer, 0, length);
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    synchronized void write(Entry entry) throws IOException {
+        String name = prefix + entry.name;
+        writeParentDirectories(name, entry.time);
+        if (names.add(name)) {
+            if (entry.file != null) {
+                writeEntry(name, entry.method, entry.size, entry.size, entry.crc, entry.time, 0);
+                copy(entry.file, entry.size);
+            } else {
+                writeEntry(name, entry.method, entry.data.length, entry.size, entry.crc, entry.time, 0);
+                write(entry.data);
+            }
+        }
+    }
+
+    private void writeParentDirectories(String name, long time) throws IOException {
+        int index = name.indexOf('/');
+        while (index >= 0) {
+            String directory = name.substring(0, index + 1);
+            if (names.add(directory)) {
+                writeEntry(directory, STORED, 0, 0, 0, time, DIRECTORY_ATTRIBUTE);
+            }
+            index = name.indexOf('/', index + 1);
+        }
+    }
+
+    /**
+     * Write the local header of an entry, its data must be written right after.
+     */
+    private void writeEntry(String name, int method, long compressedSize, long size, long crc, long time, int attributes) throws IOException {
+        if (offset > MAX_VALUE || centralEntries.size() >= MAX_ENTRIES) {
+            throw new IOException("The documentation archive is too large, zip64 is not supported: " + name);
+        }
+        byte[] encodedName = name.getBytes(UTF_8);
+        int dosTime = toDosTime(time);
+        CentralEntry centralEntry = new CentralEntry(encodedName, method, compressedSize, size, crc, dosTime, attributes, offset);
+        writeInt(LOCAL_FILE_HEADER);
+        writeShort(VERSION);
+        writeShort(UTF_8_FLAG);
+        writeShort(method);
+        writeInt(dosTime);
+        writeInt(crc);
+        writeInt(compressedSize);
+        writeInt(size);
+        writeShort(encodedName.length);
+        writeShort(0);
+        write(encodedName);
+        centralEntries.add(centralEntry);
+    }
+
+    private void copy(File file, long size) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = size;
+            while (remaining > 0) {
+                int length = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (length < 0) {
+                    throw new IOException("The file was modified while archived: " + file);
+                }
+                output.write(buffer, 0, length);
+                offset += length;
+                remaining -= length;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long centralDirectoryOffset = offset;
+            for (CentralEntry entry : centralEntries) {
+                writeInt(CENTRAL_FILE_HEADER);
+                writeShort(VERSION);
+                writeShort(VERSION);
+                writeShort(UTF_8_FLAG);
+                writeShort(entry.method);
+                writeInt(entry.dosTime);
+                writeInt(entry.crc);
+                writeInt(entry.compressedSize);
+                writeInt(entry.size);
+                writeShort(entry.name.length);
+                writeShort(0);
+                writeShort(0);
+                writeShort(0);
+                writeShort(0);
+                writeInt(entry.attributes);
+                writeInt(entry.offset);
+                write(entry.name);
+            }
+            long centralDirectorySize = offset - centralDirectoryOffset;
+            if (offset > MAX_VALUE) {
+                throw new IOException("The documentation archive is too large, zip64 is not supported");
+            }
+            writeInt(END_OF_CENTRAL_DIRECTORY);
+            writeShort(0);
+            writeShort(0);
+            writeShort(centralEntries.size());
+            writeShort(centralEntries.size());
+            writeInt(centralDirectorySize);
+            writeInt(centralDirectoryOffset);
+            writeShort(0);
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        output.write(bytes);
+        offset += bytes.length;
+    }
+
+    private static int toDosTime(long time) {
+        // UTC, so the archive does not depend on the time zone of the build
+        Calendar calendar = Calendar.getInstance(UTC, Locale.ENGLISH);
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * An entry compressed and ready to be written into the archive.
+     */
+    static final class Entry {
+        private final String name;
+        private final int method;
+        private final byte[] data;
+        /**
+         * The file copied when the entry is written, if its {@link #data} is not loaded.
+         */
+        private final File file;
+        private final long size;
+        private final long crc;
+        private final long time;
+
+        private Entry(String name, int method, byte[] data, File file, long size, long crc, long time) {
+            this.name = name;
+            this.method = method;
+            this.data = data;
+            this.file = file;
+            this.size = size;
+            this.crc = crc;
+            this.time = time;
+        }
+    }
+
+    private static final class CentralEntry {
+        private final byte[] name;
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long crc;
+        private final int dosTime;
+        private final int attributes;
+        private final long offset;
+
+        private CentralEntry(byte[] name, int method, long compressedSize, long size, long crc, int dosTime, int attributes, long offset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.crc = crc;
+            this.dosTime = dosTime;
+            this.attributes = attributes;
+            this.offset = offset;
+        }
+    }
+}
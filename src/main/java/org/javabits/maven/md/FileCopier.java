@@ -0,0 +1,86 @@
+package org.javabits.maven.md;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * Copy the static resources into the output directory.
+ * The copy is skipped if the target file has the same size and last modification
+ * time as the source file. The content is transferred from channel to channel,
+ * so the operating system may avoid any copy into the user space.
+ *
+ * @author Romain Gilles
+ */
+final class FileCopier {
+
+    /**
+     * How the static resources are copied into the output directory.
+     */
+    enum Strategy {
+        /**
+         * Copy the content of the file.
+         */
+        COPY,
+        /**
+         * Create a hard link to the source file, if not possible (e.g. the output directory
+         * is on an other file system) fall back to a copy.
+         * Be aware that with hard links, any modification of the output file also modifies the source file.
+         */
+        LINK
+    }
+
+    private FileCopier() {
+        throw new AssertionError("not for you!");
+    }
+
+    static boolean isUpToDate(File source, File target) {
+        return target.isFile()
+                && target.length() == source.length()
+                && target.lastModified() == source.lastModified();
+    }
+
+    /**
+     * Copy the source file into the target one if it is not up to date.
+     *
+     * @return {@code true} if the file has been copied, {@code false} if it was already up to date.
+     * @throws IOException if the copy fails.
+     */
+    static boolean copy(File source, File target, Strategy strategy) throws IOException {
+        if (isUpToDate(source, target)) {
+            return false;
+        }
+        if (strategy == Strategy.LINK && link(source, target)) {
+            return true;
+        }
+        transfer(source, target);
+        if (!target.setLastModified(source.lastModified())) {
+            throw new IOException("Cannot set the last modification time of: " + target);
+        }
+        return true;
+    }
+
+    private static boolean link(File source, File target) {
+        try {
+            Files.deleteIfExists(target.toPath());
+            Files.createLink(target.toPath(), source.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(File source, File target) throws IOException {
+        try (FileChannel input = new FileInputStream(source).getChannel();
+             FileChannel output = new FileOutputStream(target).getChannel()) {
+            long size = input.size();
+            long position = 0;
+            while (position < size) {
+                position += input.transferTo(position, size - position, output);
+            }
+        }
+    }
+}
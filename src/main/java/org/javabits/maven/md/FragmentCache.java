@@ -0,0 +1,278 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On disk cache of the rendered pages, shared by the builds of the same machine (branches, fresh checkouts...).
+ * The pages are addressed by the hash of their Markdown source and of the rendering settings (engine, options),
+ * so a page whose source did not change is never parsed again, whatever the project or the checkout.
+ * <p>
+ * The cache can be used concurrently by several Maven processes: a page is written into a temporary
+ * file then atomically renamed, the readers either see a complete page or no page.
+ * The last modification time of a page is its last access time, the least recently used pages
+ * are evicted when the size of the cache exceeds its maximum size. The eviction is done by
+ * only one process at a time, the one holding the lock of the cache.
+ *
+ * @author Romain Gilles
+ */
+final class FragmentCache {
+
+    /**
+     * Version of the page serialization format.
+     */
+    private static final int FORMAT = 3;
+    private static final String EXTENSION = ".page";
+    private static final String LOCK_FILE_NAME = ".lock";
+
+    private final File directory;
+    private final long maxSize;
+    private final String settings;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory the root directory of the cache.
+     * @param maxSize   the maximum size of the cache in bytes.
+     * @param settings  the fingerprint of the rendering settings, part of the key of all the pages.
+     */
+    FragmentCache(File directory, long maxSize, String settings) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.settings = settings;
+    }
+
+    /**
+     * @return the key of the page rendered from the given Markdown document.
+     */
+    String key(ByteBuffer content, String charset) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(BuildManifest.VERSION, Charsets.UTF_8);
+        hasher.putString(settings, Charsets.UTF_8);
+        hasher.putString(charset, Charsets.UTF_8);
+        return SourceFile.putBytes(hasher, content).hash().toString();
+    }
+
+    /**
+     * @return the cached page or {@code null} if the page is not in the cache or cannot be read.
+     */
+    Page get(String key) {
+        File file = getFile(key);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Page page = read(input);
+            if (page != null) {
+                hits.incrementAndGet();
+                // the modification time is the access time used by the eviction
+                file.setLastModified(System.currentTimeMillis());
+                return page;
+            }
+        } catch (FileNotFoundException e) {
+            // not cached yet, or evicted by an other process
+        } catch (IOException e) {
+            // corrupted page, it's replaced by the next put
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String key, Page page) throws IOException {
+        File file = getFile(key);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Cannot create the cache directory: " + parent);
+        }
+        File temporaryFile = File.createTempFile(key, ".tmp", parent);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                write(page, output);
+            }
+            try {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Evict the least recently used pages until the size of the cache is lower than its maximum size.
+     * The eviction is skipped if an other process (or execution) is already evicting pages.
+     *
+     * @return the number of evicted pages.
+     */
+    int evict() throws IOException {
+        if (!directory.isDirectory()) {
+            return 0;
+        }
+        try (RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
+             FileChannel channel = lockFile.getChannel()) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                return 0;
+            }
+            try {
+                return evictPages();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private int evictPages() {
+        List<File> pages = new ArrayList<>();
+        long size = 0;
+        File[] shards = directory.listFiles();
+        if (shards == null) {
+            return 0;
+        }
+        for (File shard : shards) {
+            File[] files = shard.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(EXTENSION)) {
+                    pages.add(file);
+                    size += file.length();
+                }
+            }
+        }
+        if (size <= maxSize) {
+            return 0;
+        }
+        final Map<File, Long> accessTimes = new HashMap<>();
+        for (File page : pages) {
+            accessTimes.put(page, page.lastModified());
+        }
+        Collections.sort(pages, new Comparator<File>() {
+            @Override
+            public int compare(File page1, File page2) {
+                return Long.compare(accessTimes.get(page1), accessTimes.get(page2));
+            }
+        });
+        int evicted = 0;
+        for (File page : pages) {
+            if (size <= maxSize) {
+                break;
+            }
+            long length = page.length();
+            if (page.delete()) {
+                size -= length;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private File getFile(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + EXTENSION);
+    }
+
+    private static void write(Page page, DataOutputStream output) throws IOException {
+        output.writeInt(FORMAT);
+        writeString(page.getTitle(), output);
+        writeString(page.getHtml(), output);
+        output.writeInt(page.getHeadings().size());
+        for (Heading heading : page.getHeadings()) {
+            output.writeInt(heading.getLevel());
+            writeString(heading.getText(), output);
+            writeString(heading.getId(), output);
+        }
+        writeStrings(page.getLinks(), output);
+        writeStrings(page.getTerms(), output);
+    }
+
+    private static Page read(DataInputStream input) throws IOException {
+        if (input.readInt() != FORMAT) {
+            return null;
+        }
+        String title = readString(input);
+        String html = readString(input);
+        int size = input.readInt();
+        List<Heading> headings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            headings.add(new Heading(input.readInt(), readString(input), readString(input)));
+        }
+        return new Page(title, html, headings, readStrings(input), readStrings(input));
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF(String)}, the strings are not limited to 64K.
+     */
+    private static void writeString(String value, DataOutputStream output) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static void writeStrings(List<String> values, DataOutputStream output) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            writeString(value, output);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new EOFException("Invalid list size: " + size);
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(input));
+        }
+        return values;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new EOFException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package org.javabits.maven.md;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.io.Files.getFileExtension;
+
+/**
+ * Write the precompressed gzip siblings of the generated files, to be served as is by the static servers
+ * supporting them ({@code gzip_static}...). The sibling of {@code index.html} is {@code index.html.gz},
+ * it has the same last modification time as the compressed file, so an up to date sibling is not compressed again.
+ * The gzip header holds neither the name nor the time of the file, the same content gives the same sibling.
+ *
+ * @author Romain Gilles
+ */
+final class Gzip {
+
+    static final String EXTENSION = "gz";
+    private static final Set<String> COMPRESSED_EXTENSIONS = ImmutableSet.of(
+            "png", "gif", "jpg", "jpeg", "webp", "zip", EXTENSION, "jar", "war", "bz2", "xz", "7z", "woff", "woff2", "mp3", "mp4");
+
+    private Gzip() {
+        throw new AssertionError("not for you!");
+    }
+
+    /**
+     * @return {@code true} if the file is already compressed (images, archives...), so it's not worth compressing it again.
+     */
+    static boolean isCompressed(String fileName) {
+        return COMPRESSED_EXTENSIONS.contains(getFileExtension(fileName).toLowerCase(Locale.ENGLISH));
+    }
+
+    static File getSibling(File file) {
+        return new File(file.getPath() + '.' + EXTENSION);
+    }
+
+    static boolean isUpToDate(File file) {
+        File sibling = getSibling(file);
+        return sibling.isFile() && sibling.lastModified() == file.lastModified();
+    }
+
+    /**
+     * Write the gzip sibling of the given file with the best compression, as it's compressed once and served many times.
+     */
+    static void compress(File file) throws IOException {
+        File sibling = getSibling(file);
+        try (OutputStream output = new BestCompressionOutputStream(new BufferedOutputStream(new FileOutputStream(sibling)))) {
+            Files.copy(file, output);
+        }
+        if (!sibling.setLastModified(file.lastModified())) {
+            throw new IOException("Cannot set the last modification time of: " + sibling);
+        }
+    }
+
+    /**
+     * Delete the gzip sibling of the given file if any.
+     */
+    static void deleteSibling(File file) throws IOException {
+        File sibling = getSibling(file);
+        if (sibling.exists() && !sibling.delete()) {
+            throw new IOException("Cannot delete the gzip sibling: " + sibling);
+        }
+    }
+
+    private static final class BestCompressionOutputStream extends GZIPOutputStream {
+        private BestCompressionOutputStream(OutputStream output) throws IOException {
+            super(output);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.javabits.maven.md;
+
+/**
+ * A heading of a Markdown document, both ATX and Setext style.
+ *
+ * @author Romain Gilles
+ */
+final class Heading {
+    private final int level;
+    private final String text;
+    private final String id;
+
+    Heading(int level, String text, String id) {
+        this.level = level;
+        this.text = text;
+        this.id = id;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the plain text of the heading.
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * @return the html id of the heading, unique within its document.
+     */
+    String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "h" + level + '#' + id + ' ' + text;
+    }
+}
@@ -0,0 +1,203 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.io.Files.createParentDirs;
+
+/**
+ * In memory index of the generated files, of the anchors and of the links of the generated pages.
+ * The links are validated against the index once all the files are generated, without any access
+ * to the file system. The anchors and the links of the pages are stored along with the build manifest,
+ * so the pages skipped by an incremental generation are still validated.
+ * The files and the pages can be added concurrently.
+ *
+ * @author Romain Gilles
+ */
+final class LinkIndex {
+
+    static final String FILE_NAME = "md-links.properties";
+    private static final String INDEX_PAGE = "index." + Links.PAGE_EXTENSION;
+    private static final String SETTINGS_KEY = "settings";
+    private static final String ANCHORS_PREFIX = "anchors.";
+    private static final String LINKS_PREFIX = "links.";
+    private static final char SEPARATOR = '\n';
+    /**
+     * The anchors are the ids of the headings and of the elements written in html into the documents.
+     */
+    private static final Pattern ANCHOR_PATTERN = Pattern.compile("<[a-zA-Z][^>]*?\\s(?:id|name)\\s*=\\s*[\"']([^\"']*)[\"']");
+
+    private final File file;
+    private final String settings;
+    private final Map<String, PageLinks> previousPages;
+    private final Map<String, PageLinks> pages = new ConcurrentHashMap<>();
+    private final Set<String> files = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private LinkIndex(File file, String settings, Map<String, PageLinks> previousPages) {
+        this.file = file;
+        this.settings = settings;
+        this.previousPages = previousPages;
+    }
+
+    /**
+     * Load the anchors and the links of the pages of the previous generation.
+     * If the file does not exist or if the settings differ, the index is empty.
+     */
+    static LinkIndex load(File file, String settings) throws IOException {
+        Map<String, PageLinks> previousPages = new HashMap<>();
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            }
+            if (settings.equals(properties.getProperty(SETTINGS_KEY))) {
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(ANCHORS_PREFIX)) {
+                        String source = key.substring(ANCHORS_PREFIX.length());
+                        previousPages.put(source, new PageLinks(split(properties.getProperty(key)),
+                                split(properties.getProperty(LINKS_PREFIX + source, ""))));
+                    }
+                }
+            }
+        }
+        return new LinkIndex(file, settings, previousPages);
+    }
+
+    static LinkIndex empty(File file, String settings) {
+        return new LinkIndex(file, settings, Collections.<String, PageLinks>emptyMap());
+    }
+
+    /**
+     * Add a generated file.
+     *
+     * @param path the path of the file relative to the output directory with {@code '/'} as separator.
+     */
+    void addFile(String path) {
+        files.add(path);
+    }
+
+    /**
+     * Add the anchors and the links of the page generated from the given source.
+     */
+    void addPage(String source, Page page) {
+        List<String> anchors = new ArrayList<>();
+        Matcher matcher = ANCHOR_PATTERN.matcher(page.getHtml());
+        while (matcher.find()) {
+            anchors.add(matcher.group(1));
+        }
+        pages.put(source, new PageLinks(anchors, page.getLinks()));
+    }
+
+    /**
+     * Add the anchors and the links of the page as recorded by the previous generation.
+     *
+     * @return {@code false} if the page was not recorded by the previous generation.
+     */
+    boolean reusePage(String source) {
+        PageLinks page = previousPages.get(source);
+        if (page == null) {
+            return false;
+        }
+        pages.put(source, page);
+        return true;
+    }
+
+    /**
+     * Remove a deleted source: its page if it's a Markdown document and its generated file.
+     *
+     * @param path the path of the generated file, as given to {@link #addFile(String)}.
+     */
+    void remove(String source, String path) {
+        pages.remove(source);
+        files.remove(path);
+    }
+
+    /**
+     * Validate the links of all the pages: the target file must be a generated file and the fragment,
+     * if any, must be an anchor of the target page. The links to other sites or to the root of the site
+     * are not validated.
+     *
+     * @return the description of the broken links in the sources order.
+     */
+    List<String> getBrokenLinks() {
+        Map<String, Set<String>> anchors = new HashMap<>();
+        Map<String, PageLinks> sortedPages = new TreeMap<>(pages);
+        for (Map.Entry<String, PageLinks> page : sortedPages.entrySet()) {
+            anchors.put(Links.getPagePath(page.getKey()), new HashSet<>(page.getValue().anchors));
+        }
+        List<String> brokenLinks = new ArrayList<>();
+        for (Map.Entry<String, PageLinks> page : sortedPages.entrySet()) {
+            String pagePath = Links.getPagePath(page.getKey());
+            for (String link : page.getValue().links) {
+                if (Links.isExternal(link)) {
+                    continue;
+                }
+                String path = Links.getPath(link);
+                String target = path.isEmpty() ? pagePath : Links.resolve(pagePath, path);
+                if (target == null) {
+                    continue;
+                }
+                if (target.isEmpty() || target.endsWith("/")) {
+                    target += INDEX_PAGE;
+                }
+                String fragment = Links.getFragment(link);
+                if (!files.contains(target)) {
+                    brokenLinks.add(page.getKey() + ": broken link " + link);
+                } else if (!fragment.isEmpty() && anchors.containsKey(target) && !anchors.get(target).contains(fragment)) {
+                    brokenLinks.add(page.getKey() + ": broken anchor " + link);
+                }
+            }
+        }
+        return brokenLinks;
+    }
+
+    void store() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SETTINGS_KEY, settings);
+        for (Map.Entry<String, PageLinks> page : pages.entrySet()) {
+            properties.setProperty(ANCHORS_PREFIX + page.getKey(), Joiner.on(SEPARATOR).join(page.getValue().anchors));
+            properties.setProperty(LINKS_PREFIX + page.getKey(), Joiner.on(SEPARATOR).join(page.getValue().links));
+        }
+        createParentDirs(file);
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "Markdown anchors and links");
+        }
+    }
+
+    private static List<String> split(String value) {
+        List<String> values = new ArrayList<>();
+        for (String item : Splitter.on(SEPARATOR).omitEmptyStrings().split(value)) {
+            values.add(item);
+        }
+        return values;
+    }
+
+    private static final class PageLinks {
+        private final List<String> anchors;
+        private final List<String> links;
+
+        private PageLinks(List<String> anchors, List<String> links) {
+            this.anchors = anchors;
+            this.links = links;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.javabits.maven.md;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * Utility methods on the links written into the Markdown documents.
+ *
+ * @author Romain Gilles
+ */
+final class Links {
+
+    static final String PAGE_EXTENSION = "html";
+    private static final Pattern SCHEME_PATTERN = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+    private static final String PARENT = "..";
+    private static final String CURRENT = ".";
+
+    private Links() {
+        throw new AssertionError("not for you!");
+    }
+
+    /**
+     * @return the path of the page generated from the given source relative to the root of the site,
+     * with {@code '/'} as separator.
+     */
+    static String getPagePath(String source) {
+        return AbstractMarkdownMojo.getDestinationFilePath(source, PAGE_EXTENSION).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return {@code true} if the link targets an other site (it has a scheme or an authority)
+     * or the root of the site, such links are neither rewritten nor validated.
+     */
+    static boolean isExternal(String href) {
+        return href.startsWith("/") || SCHEME_PATTERN.matcher(href).find();
+    }
+
+    /**
+     * Rewrite a relative link to a Markdown document into a link to the page generated from this document,
+     * e.g. {@code user-guide.md#install} becomes {@code user-guide.html#install}.
+     *
+     * @param href            the link as written into the document.
+     * @param sourceExtension the extension of the Markdown documents without the dot.
+     * @return the rewritten link, or the given one if it does not target a Markdown document.
+     */
+    static String rewrite(String href, String sourceExtension) {
+        if (isExternal(href)) {
+            return href;
+        }
+        int pathEnd = getPathEnd(href);
+        int extensionStart = pathEnd - sourceExtension.length() - 1;
+        if (extensionStart > 0 && href.charAt(extensionStart) == '.' && href.startsWith(sourceExtension, extensionStart + 1)
+                && href.charAt(extensionStart - 1) != '/') {
+            return href.substring(0, extensionStart + 1) + PAGE_EXTENSION + href.substring(pathEnd);
+        }
+        return href;
+    }
+
+    /**
+     * @return the decoded path of the link, without the query and the fragment.
+     */
+    static String getPath(String href) {
+        return decode(href.substring(0, getPathEnd(href)));
+    }
+
+    /**
+     * @return the decoded fragment of the link, or an empty string if there is none.
+     */
+    static String getFragment(String href) {
+        int index = href.indexOf('#');
+        if (index < 0) {
+            return "";
+        }
+        return decode(href.substring(index + 1));
+    }
+
+    /**
+     * Resolve a relative path against the directory of the given page.
+     *
+     * @param page the path of the page relative to the root of the site, with {@code '/'} as separator.
+     * @param path the relative path to resolve.
+     * @return the normalized path relative to the root of the site, or {@code null} if it's outside of the site.
+     */
+    static String resolve(String page, String path) {
+        Deque<String> segments = new ArrayDeque<>();
+        String[] pageSegments = page.split("/");
+        for (int i = 0; i < pageSegments.length - 1; i++) {
+            segments.addLast(pageSegments[i]);
+        }
+        for (String segment : path.split("/", -1)) {
+            if (PARENT.equals(segment)) {
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                segments.removeLast();
+            } else if (!CURRENT.equals(segment)) {
+                segments.addLast(segment);
+            }
+        }
+        StringBuilder resolved = new StringBuilder();
+        for (String segment : segments) {
+            if (resolved.length() > 0) {
+                resolved.append('/');
+            }
+            resolved.append(segment);
+        }
+        return resolved.toString();
+    }
+
+    /**
+     * The inverse of {@link #resolve(String, String)}: the relative path from the directory of the given page
+     * to the given path.
+     *
+     * @param page the path of the page relative to the root of the site, with {@code '/'} as separator.
+     * @param path the path of the target relative to the root of the site.
+     */
+    static String relativize(String page, String path) {
+        String[] pageSegments = page.split("/");
+        String[] pathSegments = path.split("/");
+        int common = 0;
+        while (common < pageSegments.length - 1 && common < pathSegments.length - 1
+                && pageSegments[common].equals(pathSegments[common])) {
+            common++;
+        }
+        StringBuilder relative = new StringBuilder();
+        for (int i = common; i < pageSegments.length - 1; i++) {
+            relative.append(PARENT).append('/');
+        }
+        for (int i = common; i < pathSegments.length; i++) {
+            if (i > common) {
+                relative.append('/');
+            }
+            relative.append(pathSegments[i]);
+        }
+        return relative.toString();
+    }
+
+    /**
+     * @return the index of the end of the path of the link: of its query or fragment if any.
+     */
+    static int getPathEnd(String href) {
+        for (int i = 0; i < href.length(); i++) {
+            char c = href.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return href.length();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
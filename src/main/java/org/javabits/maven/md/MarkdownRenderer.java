@@ -0,0 +1,69 @@
+package org.javabits.maven.md;
+
+/**
+ * Transform Markdown documents into {@link Page pages}.
+ * The renderers are not required to be thread safe, they are used by one thread at a time.
+ *
+ * @author Romain Gilles
+ */
+interface MarkdownRenderer {
+
+    /**
+     * The Markdown engines available to render the documents.
+     * Both engines are configured with the pegdown {@link org.pegdown.Extensions Extensions} bit set,
+     * the engines only enable the extensions they support.
+     */
+    enum Engine {
+        /**
+         * The pegdown PEG parser, it supports all the extensions.
+         */
+        PEGDOWN {
+            @Override
+            MarkdownRenderer newRenderer(int options, String sourceExtension, long parseTimeout) {
+                return new PegDownRenderer(options, sourceExtension, parseTimeout);
+            }
+
+            @Override
+            int getSupportedOptions() {
+                return org.pegdown.Extensions.ALL;
+            }
+        },
+        /**
+         * The CommonMark parser, its parsing time is linear with the document size so it has no parse timeout.
+         * Supported extensions: {@code TABLES}, {@code AUTOLINKS}, {@code FENCED_CODE_BLOCKS},
+         * {@code HARDWRAPS}, {@code SUPPRESS_HTML_BLOCKS} and {@code SUPPRESS_INLINE_HTML}, each removing its kind of html as pegdown does.
+         */
+        COMMONMARK {
+            @Override
+            MarkdownRenderer newRenderer(int options, String sourceExtension, long parseTimeout) {
+                return new CommonMarkRenderer(options, sourceExtension);
+            }
+
+            @Override
+            int getSupportedOptions() {
+                return CommonMarkRenderer.SUPPORTED_OPTIONS;
+            }
+        };
+
+        /**
+         * @param options         the pegdown extensions bit set.
+         * @param sourceExtension the extension of the Markdown documents, the relative links
+         *                        to such documents are {@link Links#rewrite(String, String) rewritten}.
+         * @param parseTimeout    the maximum parsing time of a document in milliseconds, {@code 0} or less
+         *                        for no limit, if supported by the engine.
+         */
+        abstract MarkdownRenderer newRenderer(int options, String sourceExtension, long parseTimeout);
+
+        /**
+         * @return the bit set of the extensions supported by this engine.
+         */
+        abstract int getSupportedOptions();
+    }
+
+    /**
+     * @param markdownDocument the characters of the document, the array is not modified.
+     * @throws RenderingTimeoutException if the parsing of the document exceeds the parse timeout.
+     * @throws RenderingException        if the document cannot be parsed, such as a document too deeply nested.
+     */
+    Page render(char[] markdownDocument);
+}
@@ -1,7 +1,15 @@
 package org.javabits.maven.md;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Strings;
+import org.pegdown.ast.HtmlBlockNode;
+import org.pegdown.ast.InlineHtmlNode;
+import org.pegdown.ast.Node;
+import org.pegdown.ast.TextNode;
 
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,13 +22,24 @@ public final class Markdowns {
 
     static final String NO_TITLE = "No Title";
     private static final Pattern ATX_H1_PATTERN = Pattern.compile("^# ");
+    private static final CharMatcher ID_CHARS = CharMatcher.inRange('a', 'z').or(CharMatcher.inRange('0', '9'));
+    private static final String DEFAULT_ID = "section";
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 32;
 
     private Markdowns() {
         throw new AssertionError("not for you!");
     }
 
-    public static String getTitle(String markdownDocument) {
-        for (String line : markdownDocument.split("\n")) {
+    /**
+     * The title is the first line of text, without the ATX heading marker if any.
+     * Only the first lines are read, up to the first line of text.
+     */
+    public static String getTitle(CharSequence markdownDocument) {
+        int start = 0;
+        while (start < markdownDocument.length()) {
+            int end = indexOf(markdownDocument, '\n', start);
+            String line = markdownDocument.subSequence(start, end).toString();
             if (hasText(line)) {
                 Matcher matcher = ATX_H1_PATTERN.matcher(line);
                 if (matcher.find()) {
@@ -32,10 +51,148 @@ public final class Markdowns {
                     return line.trim();
                 }
             }
+            start = end + 1;
         }
         return NO_TITLE;
     }
 
+    /**
+     * @return the index of the first occurrence of the character from the given index or the length of the sequence.
+     */
+    private static int indexOf(CharSequence sequence, char c, int fromIndex) {
+        for (int i = fromIndex; i < sequence.length(); i++) {
+            if (sequence.charAt(i) == c) {
+                return i;
+            }
+        }
+        return sequence.length();
+    }
+
+    /**
+     * @return the plain text of the given node and of all its descendants.
+     */
+    static String getText(Node node) {
+        StringBuilder text = new StringBuilder();
+        appendText(node, text);
+        return text.toString().trim();
+    }
+
+    private static void appendText(Node node, StringBuilder text) {
+        if (node instanceof TextNode) {
+            text.append(((TextNode) node).getText());
+        }
+        for (Node child : node.getChildren()) {
+            appendText(child, text);
+        }
+    }
+
+    /**
+     * Add the search terms of the given node and of all its descendants, the raw html is not indexed.
+     */
+    static void addTerms(Node node, Collection<String> terms) {
+        if (node instanceof HtmlBlockNode || node instanceof InlineHtmlNode) {
+            return;
+        }
+        if (node instanceof TextNode) {
+            addTerms(((TextNode) node).getText(), terms);
+        }
+        for (Node child : node.getChildren()) {
+            addTerms(child, terms);
+        }
+    }
+
+    /**
+     * Split the text into search terms: the lower case sequences of letters and digits,
+     * the too short and too long sequences are ignored.
+     */
+    static void addTerms(CharSequence text, Collection<String> terms) {
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        boolean tooLong = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                } else {
+                    tooLong = true;
+                }
+            } else {
+                if (term.length() >= MIN_TERM_LENGTH && !tooLong) {
+                    terms.add(term.toString());
+                }
+                term.setLength(0);
+                tooLong = false;
+            }
+        }
+    }
+
+    /**
+     * Convert a heading text into a html id: lower case letters and digits separated by {@code '-'}.
+     */
+    static String toId(String text) {
+        String id = ID_CHARS.negate().trimAndCollapseFrom(text.toLowerCase(Locale.ENGLISH), '-');
+        if (id.isEmpty()) {
+            return DEFAULT_ID;
+        }
+        return id;
+    }
+
+    /**
+     * Convert a heading text into a html id not already part of the given ids.
+     * A numeric suffix is added to the duplicated ids, the returned id is added to the ids.
+     */
+    static String toUniqueId(String text, Set<String> ids) {
+        String id = toId(text);
+        String uniqueId = id;
+        for (int i = 1; !ids.add(uniqueId); i++) {
+            uniqueId = id + '-' + i;
+        }
+        return uniqueId;
+    }
+
+    static String escapeHtml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * @return the text escaped to be written into a json string: the quotes, the backslashes
+     * and the control characters.
+     */
+    static String escapeJson(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
     private static boolean hasText(String line) {
         return !Strings.isNullOrEmpty(line) && line.trim().length() > 0;
     }
@@ -0,0 +1,111 @@
+package org.javabits.maven.md;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Html of the navigation shared by all the pages, rendered once from its Markdown document and compiled
+ * into a list of literal segments and links. Its relative links ({@code src} and {@code href} attributes)
+ * are resolved once against the location of its document, and relativized for each page it's merged into,
+ * so they target the same files from every directory of the site. The html is computed once per directory
+ * as all the pages of a directory share it. A navigation can be shared between threads.
+ *
+ * @author Romain Gilles
+ */
+final class Navigation {
+
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("(\\s(?:src|href)\\s*=\\s*\")([^\"]*)\"");
+
+    private final String html;
+    /**
+     * The literal segments, around the links: one more than the links.
+     */
+    private final List<String> literals;
+    /**
+     * The links as paths relative to the root of the site followed by their query and fragment.
+     */
+    private final List<Link> links;
+    private final ConcurrentMap<String, String> directories = new ConcurrentHashMap<>();
+
+    private Navigation(String html, List<String> literals, List<Link> links) {
+        this.html = html;
+        this.literals = Collections.unmodifiableList(literals);
+        this.links = Collections.unmodifiableList(links);
+    }
+
+    /**
+     * @param pagePath the path of the page of the navigation relative to the root of the site,
+     *                 with {@code '/'} as separator: its relative links are relative to its directory.
+     * @param html     the rendered navigation.
+     */
+    static Navigation compile(String pagePath, String html) {
+        List<String> literals = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+        Matcher matcher = REFERENCE_PATTERN.matcher(html);
+        int index = 0;
+        while (matcher.find()) {
+            String href = matcher.group(2);
+            if (href.isEmpty() || Links.isExternal(href)) {
+                continue;
+            }
+            int pathEnd = Links.getPathEnd(href);
+            String path = pathEnd > 0 ? Links.resolve(pagePath, href.substring(0, pathEnd)) : null;
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            literals.add(html.substring(index, matcher.start(2)));
+            links.add(new Link(path, href.substring(pathEnd)));
+            index = matcher.end(2);
+        }
+        literals.add(html.substring(index));
+        return new Navigation(html, literals, links);
+    }
+
+    /**
+     * @return the navigation as rendered, with the links relative to the location of its document.
+     */
+    String getHtml() {
+        return html;
+    }
+
+    /**
+     * @param pagePath the path of the page relative to the root of the site, with {@code '/'} as separator.
+     * @return the navigation with the links relative to the directory of the page.
+     */
+    String getHtml(String pagePath) {
+        String directory = pagePath.substring(0, pagePath.lastIndexOf('/') + 1);
+        String pageHtml = directories.get(directory);
+        if (pageHtml == null) {
+            // any page of the directory, relativize only considers its directory
+            String page = directory + "index." + Links.PAGE_EXTENSION;
+            StringBuilder builder = new StringBuilder(html.length() + links.size() * 8);
+            for (int i = 0; i < links.size(); i++) {
+                Link link = links.get(i);
+                String relative = Links.relativize(page, link.path);
+                if (link.path.endsWith("/") && !relative.endsWith("/")) {
+                    relative += '/';
+                }
+                builder.append(literals.get(i)).append(relative).append(link.suffix);
+            }
+            builder.append(literals.get(links.size()));
+            pageHtml = builder.toString();
+            directories.putIfAbsent(directory, pageHtml);
+        }
+        return pageHtml;
+    }
+
+    private static final class Link {
+        final String path;
+        final String suffix;
+
+        Link(String path, String suffix) {
+            this.path = path;
+            this.suffix = suffix;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.javabits.maven.md;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The result of the transformation of a Markdown document: its html body and the info
+ * extracted from the same parse tree (title, heading outline, links and search terms).
+ *
+ * @author Romain Gilles
+ */
+final class Page {
+    private final String title;
+    private final String html;
+    private final List<Heading> headings;
+    private final List<String> links;
+    private final List<String> terms;
+
+    Page(String title, String html, List<Heading> headings) {
+        this(title, html, headings, Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+
+    Page(String title, String html, List<Heading> headings, List<String> links, List<String> terms) {
+        this.title = title;
+        this.html = html;
+        this.headings = Collections.unmodifiableList(headings);
+        this.links = Collections.unmodifiableList(links);
+        this.terms = Collections.unmodifiableList(terms);
+    }
+
+    /**
+     * @return the page of a document which cannot be rendered: its source as escaped preformatted text.
+     */
+    static Page preformatted(char[] markdownDocument) {
+        CharBuffer source = CharBuffer.wrap(markdownDocument);
+        Set<String> terms = new TreeSet<>();
+        Markdowns.addTerms(source, terms);
+        return new Page(Markdowns.getTitle(source), "<pre>" + Markdowns.escapeHtml(source.toString()) + "</pre>\n",
+                Collections.<Heading>emptyList(), Collections.<String>emptyList(), new ArrayList<>(terms));
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    String getHtml() {
+        return html;
+    }
+
+    /**
+     * @return the headings of the document in the document order.
+     */
+    List<Heading> getHeadings() {
+        return headings;
+    }
+
+    /**
+     * @return the targets of the links of the document in the document order, as written into the html.
+     */
+    List<String> getLinks() {
+        return links;
+    }
+
+    /**
+     * @return the distinct search terms of the document in the natural order.
+     */
+    List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return the table of contents of the document as nested html lists of links to the headings,
+     * a heading is nested under the previous heading of a lower level, even if some levels are skipped.
+     */
+    String getTableOfContents() {
+        if (headings.isEmpty()) {
+            return "";
+        }
+        StringBuilder toc = new StringBuilder("<ul class=\"toc\">\n");
+        Deque<Integer> levels = new ArrayDeque<>();
+        for (Heading heading : headings) {
+            if (levels.isEmpty()) {
+                levels.push(heading.getLevel());
+            } else if (heading.getLevel() > levels.peek()) {
+                levels.push(heading.getLevel());
+                toc.append("\n<ul>\n");
+            } else {
+                toc.append("</li>\n");
+                while (heading.getLevel() < levels.peek()) {
+                    levels.pop();
+                    if (levels.isEmpty() || heading.getLevel() > levels.peek()) {
+                        // the list of a skipped level: the heading is nested as its items, into the same parent
+                        levels.push(heading.getLevel());
+                        break;
+                    }
+                    toc.append("</ul>\n</li>\n");
+                }
+            }
+            toc.append("<li><a href=\"#").append(heading.getId()).append("\">")
+                    .append(Markdowns.escapeHtml(heading.getText())).append("</a>");
+        }
+        toc.append("</li>\n");
+        while (levels.size() > 1) {
+            levels.pop();
+            toc.append("</ul>\n</li>\n");
+        }
+        return toc.append("</ul>\n").toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.javabits.maven.md;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In memory cache of the pages rendered on demand, bounded by the total size of the pages:
+ * the least recently used pages are evicted as soon as it exceeds its maximum size.
+ * A page is cached with the fingerprint of its source, such as {@link BuildManifest#fingerprint(java.io.File)},
+ * and it's invalidated when the fingerprint of the source changes. The cache is thread safe.
+ *
+ * @author Romain Gilles
+ */
+final class PageCache {
+
+    private final long maxSize;
+    private final LinkedHashMap<String, CachedPage> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize the maximum total size in bytes of the cached pages.
+     */
+    PageCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cached page, or {@code null} if it's not cached or if its source changed.
+     */
+    synchronized byte[] get(String source, String fingerprint) {
+        CachedPage page = pages.get(source);
+        if (page == null || !page.fingerprint.equals(fingerprint)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return page.content;
+    }
+
+    /**
+     * Cache the page, unless it is larger than the maximum size of the cache.
+     */
+    synchronized void put(String source, String fingerprint, byte[] content) {
+        remove(source);
+        if (content.length > maxSize) {
+            return;
+        }
+        pages.put(source, new CachedPage(fingerprint, content));
+        size += content.length;
+        Iterator<Map.Entry<String, CachedPage>> iterator = pages.entrySet().iterator();
+        while (size > maxSize) {
+            size -= iterator.next().getValue().content.length;
+            iterator.remove();
+        }
+    }
+
+    synchronized void remove(String source) {
+        CachedPage page = pages.remove(source);
+        if (page != null) {
+            size -= page.content.length;
+        }
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class CachedPage {
+        private final String fingerprint;
+        private final byte[] content;
+
+        private CachedPage(String fingerprint, byte[] content) {
+            this.fingerprint = fingerprint;
+            this.content = content;
+        }
+    }
+}
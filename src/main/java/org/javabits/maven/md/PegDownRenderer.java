@@ -0,0 +1,137 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Throwables;
+import org.parboiled.errors.ParserRuntimeException;
+import org.pegdown.LinkRenderer;
+import org.pegdown.ParsingTimeoutException;
+import org.pegdown.PegDownProcessor;
+import org.pegdown.ToHtmlSerializer;
+import org.pegdown.ast.ExpLinkNode;
+import org.pegdown.ast.HeaderNode;
+import org.pegdown.ast.Node;
+import org.pegdown.ast.RefLinkNode;
+import org.pegdown.ast.RootNode;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Transform Markdown documents into {@link Page pages} using pegdown.
+ * The document is parsed once, the html, the title and the headings are all
+ * derived from the same parse tree. The headings are rendered with an id attribute
+ * to be the target of the table of contents links. The relative links to the Markdown documents
+ * are rewritten into links to the generated pages and the search terms are extracted from the parse tree.
+ * The parsing is aborted if it exceeds the parse timeout, as some malformed documents (e.g. deeply nested
+ * emphasis) make the PEG parser backtrack for minutes, or overflow its stack.
+ * A renderer is not thread safe, as the underlying {@link PegDownProcessor}.
+ *
+ * @author Romain Gilles
+ */
+final class PegDownRenderer implements MarkdownRenderer {
+
+    private final PegDownProcessor pegDownProcessor;
+    private final String sourceExtension;
+    private final long parseTimeout;
+
+    /**
+     * @param parseTimeout the maximum parsing time of a document in milliseconds, {@code 0} or less for no limit.
+     */
+    PegDownRenderer(int options, String sourceExtension, long parseTimeout) {
+        this.pegDownProcessor = new PegDownProcessor(options, parseTimeout > 0 ? parseTimeout : Long.MAX_VALUE);
+        this.sourceExtension = sourceExtension;
+        this.parseTimeout = parseTimeout;
+    }
+
+    @Override
+    public Page render(char[] markdownDocument) {
+        RootNode rootNode;
+        try {
+            rootNode = pegDownProcessor.parseMarkdown(markdownDocument);
+        } catch (ParserRuntimeException e) {
+            // the timeout is raised by a parser action, so parboiled wraps it
+            Throwable cause = Throwables.getRootCause(e);
+            if (cause instanceof ParsingTimeoutException) {
+                throw new RenderingTimeoutException("the parsing exceeded the parse timeout of " + parseTimeout + " ms", cause);
+            }
+            if (cause instanceof StackOverflowError) {
+                // the parser recurses on each nesting level, whatever the parse timeout
+                throw new RenderingException("the document is too deeply nested for the parser stack", cause);
+            }
+            throw e;
+        }
+        RewritingLinkRenderer linkRenderer = new RewritingLinkRenderer(sourceExtension);
+        HeadingSerializer serializer = new HeadingSerializer(linkRenderer);
+        String html = serializer.toHtml(rootNode);
+        Set<String> terms = new TreeSet<>();
+        Markdowns.addTerms(rootNode, terms);
+        return new Page(getTitle(rootNode, serializer.headings, markdownDocument), html, serializer.headings, linkRenderer.links,
+                new ArrayList<>(terms));
+    }
+
+    /**
+     * The title is the first heading if the document starts with a heading,
+     * otherwise it's the first line of text.
+     */
+    private static String getTitle(RootNode rootNode, List<Heading> headings, char[] markdownDocument) {
+        List<Node> children = rootNode.getChildren();
+        if (!children.isEmpty() && children.get(0) instanceof HeaderNode && !headings.isEmpty()) {
+            String title = headings.get(0).getText();
+            if (!title.isEmpty()) {
+                return title;
+            }
+        }
+        return Markdowns.getTitle(CharBuffer.wrap(markdownDocument));
+    }
+
+    private static class HeadingSerializer extends ToHtmlSerializer {
+        private final List<Heading> headings = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+
+        HeadingSerializer(LinkRenderer linkRenderer) {
+            super(linkRenderer);
+        }
+
+        @Override
+        public void visit(HeaderNode node) {
+            String text = Markdowns.getText(node);
+            String uniqueId = Markdowns.toUniqueId(text, ids);
+            headings.add(new Heading(node.getLevel(), text, uniqueId));
+            String tag = "h" + node.getLevel();
+            printer.print('<').print(tag).print(" id=\"").print(uniqueId).print("\">");
+            visitChildren(node);
+            printer.print("</").print(tag).print('>');
+        }
+    }
+
+    /**
+     * Rewrite and collect the targets of the inline and reference links.
+     */
+    private static class RewritingLinkRenderer extends LinkRenderer {
+        private final String sourceExtension;
+        private final List<String> links = new ArrayList<>();
+
+        RewritingLinkRenderer(String sourceExtension) {
+            this.sourceExtension = sourceExtension;
+        }
+
+        @Override
+        public Rendering render(ExpLinkNode node, String text) {
+            return rewrite(super.render(node, text));
+        }
+
+        @Override
+        public Rendering render(RefLinkNode node, String url, String title, String text) {
+            return rewrite(super.render(node, url, title, text));
+        }
+
+        private Rendering rewrite(Rendering rendering) {
+            rendering.href = Links.rewrite(rendering.href, sourceExtension);
+            links.add(rendering.href);
+            return rendering;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.javabits.maven.md;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the idle renderers of an engine configured with a given options bit set, source extension and parse timeout.
+ * The pools are shared by all the executions of the plugin within the same class loader,
+ * so the modules of a (parallel) reactor build reuse the renderers built by the previous modules
+ * instead of rebuilding the parsers.
+ * A renderer is used by one thread at a time: it's acquired for the rendering of a document
+ * and released right after. The idle renderers are capped to the largest number of threads
+ * of the executions, the surplus is dropped on release.
+ *
+ * @author Romain Gilles
+ */
+final class RendererPool {
+
+    private static final ConcurrentMap<String, RendererPool> POOLS = new ConcurrentHashMap<>();
+
+    private final MarkdownRenderer.Engine engine;
+    private final int options;
+    private final String sourceExtension;
+    private final long parseTimeout;
+    private final Queue<MarkdownRenderer> idleRenderers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private volatile int maxIdle;
+
+    private RendererPool(MarkdownRenderer.Engine engine, int options, String sourceExtension, long parseTimeout) {
+        this.engine = engine;
+        this.options = options;
+        this.sourceExtension = sourceExtension;
+        this.parseTimeout = parseTimeout;
+    }
+
+    /**
+     * @param threads the number of threads of the execution, the pool keeps at least as many idle renderers.
+     * @return the shared pool of the renderers of the given engine, options, source extension and parse timeout.
+     */
+    static RendererPool of(MarkdownRenderer.Engine engine, int options, String sourceExtension, long parseTimeout, int threads) {
+        String key = engine.name() + ':' + options + ':' + sourceExtension + ':' + parseTimeout;
+        RendererPool pool = POOLS.get(key);
+        if (pool == null) {
+            RendererPool newPool = new RendererPool(engine, options, sourceExtension, parseTimeout);
+            pool = POOLS.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        pool.ensureMaxIdle(threads);
+        return pool;
+    }
+
+    private synchronized void ensureMaxIdle(int threads) {
+        if (threads > maxIdle) {
+            maxIdle = threads;
+        }
+    }
+
+    /**
+     * @return an idle renderer or a new one if there is none, it must be {@link #release(MarkdownRenderer) released} after use.
+     */
+    MarkdownRenderer acquire() {
+        MarkdownRenderer renderer = idleRenderers.poll();
+        if (renderer != null) {
+            idleCount.decrementAndGet();
+            return renderer;
+        }
+        return engine.newRenderer(options, sourceExtension, parseTimeout);
+    }
+
+    void release(MarkdownRenderer renderer) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idleRenderers.offer(renderer);
+    }
+}
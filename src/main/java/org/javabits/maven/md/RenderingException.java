@@ -0,0 +1,19 @@
+package org.javabits.maven.md;
+
+/**
+ * Thrown when a Markdown document cannot be rendered, such as a document too deeply nested for the parser stack.
+ *
+ * @author Romain Gilles
+ */
+class RenderingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    RenderingException(String message) {
+        super(message);
+    }
+
+    RenderingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
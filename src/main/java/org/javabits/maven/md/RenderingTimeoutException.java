@@ -0,0 +1,19 @@
+package org.javabits.maven.md;
+
+/**
+ * Thrown when the rendering of a Markdown document exceeds its time limit.
+ *
+ * @author Romain Gilles
+ */
+final class RenderingTimeoutException extends RenderingException {
+
+    private static final long serialVersionUID = 1L;
+
+    RenderingTimeoutException(String message) {
+        super(message);
+    }
+
+    RenderingTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,14 @@
 package org.javabits.maven.md;
 
 import com.google.common.io.Files;
-import com.google.common.io.InputSupplier;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * TODO comment
@@ -17,6 +18,11 @@ import java.nio.file.Paths;
  * @author Romain Gilles
  */
 public final class Resources {
+    /**
+     * The content of the bundled resources, they never change within a class loader.
+     */
+    private static final ConcurrentMap<String, byte[]> CONTENTS = new ConcurrentHashMap<>();
+
     private Resources() {
         throw new AssertionError("not for you!");
     }
@@ -31,7 +37,7 @@ public final class Resources {
     }
 
     public static String toString(String path, Charset charset) throws IOException {
-        return com.google.common.io.Resources.toString(Resources.class.getResource(path), charset);
+        return new String(getContent(path), charset);
     }
 
     public static File copyToDir(String path, File destinationDirectory) throws IOException {
@@ -41,12 +47,26 @@ public final class Resources {
         return toFile;
     }
 
+    /**
+     * Copy the resource into the given file, the copy is skipped if the file has already the same content.
+     */
     public static void copy(final String path, File toFile) throws IOException {
-        Files.copy(new InputSupplier<InputStream>() {
-            @Override
-            public InputStream getInput() throws IOException {
-                return getClass().getResourceAsStream(path);
-            }
-        }, toFile);
+        byte[] content = getContent(path);
+        if (toFile.isFile() && toFile.length() == content.length && Arrays.equals(content, Files.toByteArray(toFile))) {
+            return;
+        }
+        Files.write(content, toFile);
+    }
+
+    /**
+     * @return the cached content of the resource, it must not be modified.
+     */
+    private static byte[] getContent(String path) throws IOException {
+        byte[] content = CONTENTS.get(path);
+        if (content == null) {
+            content = com.google.common.io.Resources.toByteArray(Resources.class.getResource(path));
+            CONTENTS.putIfAbsent(path, content);
+        }
+        return content;
     }
 }
@@ -0,0 +1,281 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.io.Files.createParentDirs;
+import static com.google.common.io.Files.newWriter;
+
+/**
+ * Inverted index of the search terms of the generated pages, written as static json files
+ * so the browser only loads the documents list and the shard of the searched term:
+ * <ul>
+ * <li>{@code documents.json}: the array of the documents, each one as a {@code [path, title]} array
+ * where the path is relative to the output directory,
+ * the id of a document is its index in this array.</li>
+ * <li>{@code <shard>.json}: the object mapping the terms of the shard to their postings, the sorted ids
+ * of the documents containing the term, delta encoded: the first id then the differences between
+ * consecutive ids. The shard of a term is its two first characters if they are in {@code [a-z0-9]},
+ * otherwise its first character if it is in {@code [a-z0-9]}, otherwise {@code '_'} followed by
+ * the hexadecimal code of its first character.</li>
+ * </ul>
+ * The terms and the titles of the pages are stored along with the build manifest, so the pages
+ * skipped by an incremental generation are still indexed. The pages can be added concurrently.
+ *
+ * @author Romain Gilles
+ */
+final class SearchIndex {
+
+    static final String FILE_NAME = "md-search.properties";
+    /**
+     * The directory of the index relative to the output directory.
+     */
+    static final String DIRECTORY = "md-search";
+    static final String DOCUMENTS_FILE_NAME = "documents.json";
+    private static final String EXTENSION = ".json";
+    private static final int SHARD_PREFIX_LENGTH = 2;
+    private static final CharMatcher SHARD_CHARS = CharMatcher.inRange('a', 'z').or(CharMatcher.inRange('0', '9'));
+    private static final String SETTINGS_KEY = "settings";
+    private static final String TITLE_PREFIX = "title.";
+    private static final String TERMS_PREFIX = "terms.";
+    private static final char SEPARATOR = ' ';
+
+    private final File file;
+    private final String settings;
+    private final Map<String, PageTerms> previousPages;
+    private final Map<String, PageTerms> pages = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private SearchIndex(File file, String settings, Map<String, PageTerms> previousPages) {
+        this.file = file;
+        this.settings = settings;
+        this.previousPages = previousPages;
+    }
+
+    /**
+     * Load the terms of the pages of the previous generation.
+     * If the file does not exist or if the settings differ, the index is empty.
+     */
+    static SearchIndex load(File file, String settings) throws IOException {
+        Map<String, PageTerms> previousPages = new HashMap<>();
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            }
+            if (settings.equals(properties.getProperty(SETTINGS_KEY))) {
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(TITLE_PREFIX)) {
+                        String source = key.substring(TITLE_PREFIX.length());
+                        List<String> terms = new ArrayList<>();
+                        for (String term : Splitter.on(SEPARATOR).omitEmptyStrings().split(properties.getProperty(TERMS_PREFIX + source, ""))) {
+                            terms.add(term);
+                        }
+                        previousPages.put(source, new PageTerms(properties.getProperty(key), terms));
+                    }
+                }
+            }
+        }
+        return new SearchIndex(file, settings, previousPages);
+    }
+
+    static SearchIndex empty(File file, String settings) {
+        return new SearchIndex(file, settings, Collections.<String, PageTerms>emptyMap());
+    }
+
+    /**
+     * Add the terms of the page generated from the given source.
+     */
+    void addPage(String source, Page page) {
+        pages.put(source, new PageTerms(page.getTitle(), page.getTerms()));
+        modified = true;
+    }
+
+    /**
+     * Add the terms of the page as recorded by the previous generation.
+     *
+     * @return {@code false} if the page was not recorded by the previous generation.
+     */
+    boolean reusePage(String source) {
+        PageTerms page = previousPages.get(source);
+        if (page == null) {
+            return false;
+        }
+        pages.put(source, page);
+        return true;
+    }
+
+    void remove(String source) {
+        if (pages.remove(source) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Write the index files into the given directory, unless the index did not change since
+     * the previous generation. The other json files of the directory, and their gzip siblings, are deleted.
+     *
+     * @return the index files in the name order.
+     */
+    List<File> write(File directory) throws IOException {
+        File documentsFile = new File(directory, DOCUMENTS_FILE_NAME);
+        if (!modified && pages.keySet().equals(previousPages.keySet()) && documentsFile.isFile()) {
+            return listFiles(directory);
+        }
+        createParentDirs(documentsFile);
+        Map<String, PageTerms> sortedPages = new TreeMap<>(pages);
+        Map<String, Postings> postings = new TreeMap<>();
+        try (Writer writer = newWriter(documentsFile, Charsets.UTF_8)) {
+            writer.append('[');
+            int id = 0;
+            for (Map.Entry<String, PageTerms> page : sortedPages.entrySet()) {
+                if (id > 0) {
+                    writer.append(',');
+                }
+                writer.append("\n[\"").append(Markdowns.escapeJson(Links.getPagePath(page.getKey())))
+                        .append("\",\"").append(Markdowns.escapeJson(page.getValue().title)).append("\"]");
+                for (String term : page.getValue().terms) {
+                    Postings termPostings = postings.get(term);
+                    if (termPostings == null) {
+                        termPostings = new Postings();
+                        postings.put(term, termPostings);
+                    }
+                    termPostings.add(id);
+                }
+                id++;
+            }
+            writer.append("\n]\n");
+        }
+        Map<String, StringBuilder> shards = new TreeMap<>();
+        for (Map.Entry<String, Postings> term : postings.entrySet()) {
+            String shard = getShard(term.getKey());
+            StringBuilder json = shards.get(shard);
+            if (json == null) {
+                json = new StringBuilder("{");
+                shards.put(shard, json);
+            } else {
+                json.append(',');
+            }
+            json.append("\n\"").append(Markdowns.escapeJson(term.getKey())).append("\":");
+            term.getValue().appendDeltas(json);
+        }
+        Set<String> fileNames = new HashSet<>();
+        fileNames.add(DOCUMENTS_FILE_NAME);
+        for (Map.Entry<String, StringBuilder> shard : shards.entrySet()) {
+            String fileName = shard.getKey() + EXTENSION;
+            fileNames.add(fileName);
+            try (Writer writer = newWriter(new File(directory, fileName), Charsets.UTF_8)) {
+                writer.append(shard.getValue()).append("\n}\n");
+            }
+        }
+        for (File staleFile : listFiles(directory)) {
+            if (!fileNames.contains(staleFile.getName())) {
+                if (!staleFile.delete()) {
+                    throw new IOException("Cannot delete the stale search index file: " + staleFile);
+                }
+                Gzip.deleteSibling(staleFile);
+            }
+        }
+        return listFiles(directory);
+    }
+
+    /**
+     * @return the name of the shard holding the given term, without the extension.
+     */
+    static String getShard(String term) {
+        char first = term.charAt(0);
+        if (!SHARD_CHARS.matches(first)) {
+            return '_' + Integer.toHexString(first);
+        }
+        if (term.length() >= SHARD_PREFIX_LENGTH && SHARD_CHARS.matchesAllOf(term.substring(0, SHARD_PREFIX_LENGTH))) {
+            return term.substring(0, SHARD_PREFIX_LENGTH);
+        }
+        return String.valueOf(first);
+    }
+
+    void store() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SETTINGS_KEY, settings);
+        for (Map.Entry<String, PageTerms> page : pages.entrySet()) {
+            properties.setProperty(TITLE_PREFIX + page.getKey(), page.getValue().title);
+            properties.setProperty(TERMS_PREFIX + page.getKey(), Joiner.on(SEPARATOR).join(page.getValue().terms));
+        }
+        createParentDirs(file);
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "Markdown search terms");
+        }
+    }
+
+    private static List<File> listFiles(File directory) {
+        List<File> files = new ArrayList<>();
+        File[] children = directory.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isFile() && child.getName().endsWith(EXTENSION)) {
+                    files.add(child);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static final class PageTerms {
+        private final String title;
+        private final List<String> terms;
+
+        private PageTerms(String title, List<String> terms) {
+            this.title = title;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * The ascending ids of the documents containing a term.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void appendDeltas(StringBuilder json) {
+            json.append('[');
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(ids[i] - previous);
+                previous = ids[i];
+            }
+            json.append(']');
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.io.Files.getFileExtension;
+
+/**
+ * Serve the documentation over HTTP without generating it up front: the requested pages are mapped back
+ * to their Markdown document and rendered on demand with the template and the css of the generation,
+ * the other requested files are served from the sources directory.
+ * The rendered pages are kept in a {@link PageCache} bounded by {@link #pageCacheSize}, a page is
+ * rendered again as soon as its document is modified, and all of them as soon as the template, the css
+ * or the navigation document is modified. Only the files of the sources directories are served.
+ * The server runs until the build is interrupted (Ctrl+C), or until a line is entered if the build runs in a console.
+ *
+ * @author Romain Gilles
+ */
+@Mojo(name = "serve")
+public class ServeMojo extends AbstractMarkdownMojo {
+
+    private static final String INDEX_PAGE = "index." + Links.PAGE_EXTENSION;
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final Map<String, String> CONTENT_TYPES = ImmutableMap.<String, String>builder()
+            .put("css", "text/css")
+            .put("js", "application/javascript")
+            .put("json", "application/json")
+            .put("txt", "text/plain")
+            .put("xml", "application/xml")
+            .put("svg", "image/svg+xml")
+            .put("png", "image/png")
+            .put("gif", "image/gif")
+            .put("jpg", "image/jpeg")
+            .put("jpeg", "image/jpeg")
+            .put("ico", "image/x-icon")
+            .put("pdf", "application/pdf")
+            .build();
+
+    /**
+     * The address the server listens on, only the local host by default.
+     */
+    @Parameter(property = "md.serve.host", defaultValue = "localhost")
+    private String host;
+
+    @Parameter(property = "md.serve.port", defaultValue = "8080")
+    private int port;
+
+    /**
+     * The maximum size in megabytes of the rendered pages kept in memory,
+     * the least recently served pages are evicted first.
+     */
+    @Parameter(property = "md.serve.cache.size", defaultValue = "32")
+    private long pageCacheSize;
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private SourceRoots sourceRoots;
+    private PageCache pages;
+    private Site site;
+    private ExecutorService executor;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("Markdown serve");
+        if (!getSources().exists()) {
+            getLog().info("Skip project no documentation found at: " + getSources());
+            return;
+        }
+        final HttpServer server = start();
+        final CountDownLatch stop = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stop.countDown();
+                stop(server);
+            }
+        }, "md-serve-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        boolean console = System.console() != null;
+        if (console) {
+            waitForEnter(stop);
+        }
+        getLog().info("Serving " + getSources() + " at http://" + host + ':' + server.getAddress().getPort() + "/ press "
+                + (console ? "Enter" : "Ctrl+C") + " to stop.");
+        try {
+            stop.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stop(server);
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                getLog().debug("The JVM is shutting down", e);
+            }
+        }
+        getLog().info("Server stopped, pages cache: " + pages.getHits() + " hits, " + pages.getMisses() + " misses");
+    }
+
+    /**
+     * Start the server on a pool of {@link #getThreads()} threads.
+     *
+     * @return the running server.
+     */
+    HttpServer start() throws MojoExecutionException {
+        sourceRoots = getSourceRoots();
+        pages = new PageCache(pageCacheSize * 1024 * 1024);
+        getSite();
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot listen on: " + host + ':' + port, e);
+        }
+        executor = Executors.newFixedThreadPool(getThreads());
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Stop the server once, either from the build thread or from the shutdown hook.
+     */
+    void stop(HttpServer server) {
+        if (stopped.compareAndSet(false, true)) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Release the given latch when a line is entered in the console. The end of the input does not stop
+     * the server, as the build may run with a closed standard input.
+     */
+    private void waitForEnter(final CountDownLatch stop) {
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (new BufferedReader(new InputStreamReader(System.in)).readLine() != null) {
+                        stop.countDown();
+                    }
+                } catch (IOException e) {
+                    getLog().debug("Cannot read the standard input", e);
+                }
+            }
+        }, "md-serve-console");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            sendError(exchange, 405, "Method not allowed: " + method);
+            return;
+        }
+        String requestPath = exchange.getRequestURI().getPath();
+        if (requestPath.endsWith("/")) {
+            requestPath += INDEX_PAGE;
+        }
+        Path path = Paths.get(requestPath.substring(1)).normalize();
+        if (path.isAbsolute() || path.startsWith("..")) {
+            sendError(exchange, 404, "Not found: " + requestPath);
+            return;
+        }
+        Site current;
+        try {
+            current = getSite();
+        } catch (MojoExecutionException e) {
+            getLog().error("Cannot prepare the generation", e);
+            sendError(exchange, 500, "Cannot prepare the generation: " + e.getMessage());
+            return;
+        }
+        String destinationPath = path.toString();
+        getLog().debug("Serve: " + destinationPath);
+        if (destinationPath.equals(current.cssPath)) {
+            sendFile(exchange, current.generation.getTargetCss().toFile(), head);
+            return;
+        }
+        if (Links.PAGE_EXTENSION.equals(getFileExtension(destinationPath))) {
+            String includedFile = getSourceFilePath(destinationPath);
+            File inputFile = getInputFile(includedFile);
+            if (isServed(includedFile, inputFile)) {
+                sendPage(exchange, current, includedFile, inputFile, head);
+                return;
+            }
+        }
+        File inputFile = getInputFile(destinationPath);
+        if (isServed(destinationPath, inputFile) && !sourceRoots.isDocument(destinationPath)) {
+            sendFile(exchange, inputFile, head);
+            return;
+        }
+        sendError(exchange, 404, "Not found: " + requestPath);
+    }
+
+    /**
+     * @return {@code true} if the file is an included file of its sources directory.
+     */
+    private boolean isServed(String includedFile, File inputFile) {
+        return inputFile != null && inputFile.isFile() && sourceRoots.contains(includedFile) && sourceRoots.isIncluded(includedFile);
+    }
+
+    /**
+     * @return the generation of the pages, prepared again if the template, the css or the navigation changed.
+     */
+    private synchronized Site getSite() throws MojoExecutionException {
+        String sharedFiles = fingerprintSharedFiles();
+        if (site == null || !site.sharedFiles.equals(sharedFiles)) {
+            if (site != null) {
+                getLog().info("Reload the template, the css and the navigation");
+            }
+            Generation generation = prepareGeneration();
+            site = new Site(generation, sharedFiles,
+                    getOutputDir().getAbsoluteFile().toPath().relativize(generation.getTargetCss()).toString());
+        }
+        return site;
+    }
+
+    PageCache getPageCache() {
+        return pages;
+    }
+
+    private void sendPage(HttpExchange exchange, Site site, String includedFile, File inputFile, boolean head) throws IOException {
+        // the pages rendered with a previous template, css or navigation are not reused
+        String fingerprint = BuildManifest.fingerprint(BuildManifest.fingerprint(inputFile), site.sharedFiles);
+        byte[] page = pages.get(includedFile, fingerprint);
+        if (page == null) {
+            long start = System.nanoTime();
+            try {
+                page = site.generation.renderPage(includedFile);
+            } catch (IOException | RuntimeException e) {
+                getLog().error("Cannot render: " + includedFile, e);
+                sendError(exchange, 500, "Cannot render " + includedFile + ": " + e.getMessage());
+                return;
+            }
+            pages.put(includedFile, fingerprint, page);
+            getLog().debug("Rendered " + includedFile + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=" + site.generation.getCharset().name());
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, head ? -1 : page.length);
+        if (!head) {
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(page);
+            }
+        }
+    }
+
+    /**
+     * Copy the file into the response by chunks from its channel, so it's never loaded whole into the heap.
+     */
+    private void sendFile(HttpExchange exchange, File file, boolean head) throws IOException {
+        String contentType = CONTENT_TYPES.get(getFileExtension(file.getName()).toLowerCase(Locale.ENGLISH));
+        exchange.getResponseHeaders().set("Content-Type", contentType != null ? contentType : DEFAULT_CONTENT_TYPE);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            exchange.sendResponseHeaders(200, head ? -1 : length);
+            if (!head) {
+                try (WritableByteChannel body = Channels.newChannel(exchange.getResponseBody())) {
+                    long position = 0;
+                    while (position < length) {
+                        position += channel.transferTo(position, length - position, body);
+                    }
+                }
+            }
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] content = message.getBytes(Charsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + Charsets.UTF_8.name());
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content);
+        }
+    }
+
+    /**
+     * The generation of the pages with the fingerprint of the files shared by all of them.
+     */
+    private static final class Site {
+        private final Generation generation;
+        private final String sharedFiles;
+        /**
+         * The path of the css relative to the output directory.
+         */
+        private final String cssPath;
+
+        private Site(Generation generation, String sharedFiles, String cssPath) {
+            this.generation = generation;
+            this.sharedFiles = sharedFiles;
+            this.cssPath = cssPath;
+        }
+    }
+}
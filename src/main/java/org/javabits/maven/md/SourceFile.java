@@ -0,0 +1,84 @@
+package org.javabits.maven.md;
+
+import com.google.common.hash.Hasher;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Read the Markdown source files through NIO. The large files are memory mapped, so their
+ * bytes stay out of the heap: only the decoded characters given to the parser are allocated.
+ *
+ * @author Romain Gilles
+ */
+final class SourceFile {
+
+    /**
+     * The files bigger than this size in bytes are memory mapped instead of read into the heap.
+     */
+    static final long MAPPED_THRESHOLD = 1024 * 1024;
+    private static final int CHUNK_SIZE = 8192;
+
+    private SourceFile() {
+        throw new AssertionError("not for you!");
+    }
+
+    /**
+     * @return the content of the file, ready to be read from its start.
+     */
+    static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            long size = channel.size();
+            if (size > MAPPED_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // read until the end of the file
+            }
+            content.flip();
+            return content;
+        }
+    }
+
+    /**
+     * Decode the content into an array of the exact size of the document,
+     * the malformed input is replaced as done by {@link String#String(byte[], Charset)}.
+     */
+    static char[] decode(ByteBuffer content, Charset charset) throws CharacterCodingException {
+        CharBuffer characters = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(content.duplicate());
+        if (characters.hasArray() && characters.arrayOffset() == 0 && characters.remaining() == characters.array().length) {
+            return characters.array();
+        }
+        char[] document = new char[characters.remaining()];
+        characters.get(document);
+        return document;
+    }
+
+    /**
+     * Put the content into the hasher by chunks, without copying the whole content into the heap.
+     */
+    static Hasher putBytes(Hasher hasher, ByteBuffer content) {
+        if (content.hasArray()) {
+            return hasher.putBytes(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        ByteBuffer input = content.duplicate();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (input.hasRemaining()) {
+            int length = Math.min(chunk.length, input.remaining());
+            input.get(chunk, 0, length);
+            hasher.putBytes(chunk, 0, length);
+        }
+        return hasher;
+    }
+}
@@ -0,0 +1,156 @@
+package org.javabits.maven.md;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The source directories of a generation, each one is generated under its prefix in the output directory:
+ * the empty prefix for the sources directory of a project, the path of the module for each module of an
+ * aggregated site. The included files are relative to the output directory with the platform separator:
+ * the prefix followed by the path of the file relative to its source directory.
+ *
+ * @author Romain Gilles
+ */
+final class SourceRoots {
+
+    private final List<Root> roots = new ArrayList<>();
+
+    /**
+     * @param scanners the scanners of the source directories by their prefix, with the platform separator.
+     */
+    SourceRoots(Map<String, SourceScanner> scanners) {
+        for (Map.Entry<String, SourceScanner> scanner : scanners.entrySet()) {
+            roots.add(new Root(scanner.getKey(), scanner.getValue()));
+        }
+        // the longest prefix first, to find the root of a nested prefix
+        Collections.sort(roots, new Comparator<Root>() {
+            @Override
+            public int compare(Root root, Root other) {
+                return other.prefix.length() - root.prefix.length();
+            }
+        });
+    }
+
+    static SourceRoots of(SourceScanner scanner) {
+        return new SourceRoots(Collections.singletonMap("", scanner));
+    }
+
+    /**
+     * @return {@code true} if at least one of the source directories exists.
+     */
+    boolean exists() {
+        for (Root root : roots) {
+            if (root.scanner.getRoot().toFile().isDirectory()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walk all the existing source directories and give the included files to the listener, until it stops the scan.
+     *
+     * @return the number of included files given to the listener.
+     * @throws IOException if a source directory contains the prefix of another one, as their files would be
+     *                     generated into the same directory.
+     */
+    int scan(final SourceScanner.Listener listener) throws IOException {
+        checkOverlaps();
+        int count = 0;
+        final AtomicBoolean stopped = new AtomicBoolean();
+        for (final Root root : roots) {
+            if (!root.scanner.getRoot().toFile().isDirectory()) {
+                continue;
+            }
+            count += root.scanner.scan(new SourceScanner.Listener() {
+                @Override
+                public boolean found(String includedFile, boolean document) {
+                    stopped.set(!listener.found(root.prefix + includedFile, document));
+                    return !stopped.get();
+                }
+            });
+            if (stopped.get()) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private void checkOverlaps() throws IOException {
+        for (Root root : roots) {
+            for (Root nested : roots) {
+                if (nested.prefix.length() > root.prefix.length() && nested.prefix.startsWith(root.prefix)) {
+                    Path overlap = root.scanner.getRoot().resolve(nested.prefix.substring(root.prefix.length()));
+                    if (Files.exists(overlap)) {
+                        throw new IOException("The source directory " + overlap + " overlaps the sources of "
+                                + nested.scanner.getRoot() + " generated into: " + nested.prefix);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the given path resolves into its source directory, i.e. it is neither absolute
+     * nor escaping the directory with {@code ..}.
+     */
+    boolean contains(String includedFile) {
+        Root root = getRoot(includedFile);
+        if (root == null) {
+            return false;
+        }
+        Path directory = root.scanner.getRoot().toAbsolutePath().normalize();
+        return directory.resolve(includedFile.substring(root.prefix.length())).normalize().startsWith(directory);
+    }
+
+    /**
+     * @return the source file of the given included file.
+     */
+    File getFile(String includedFile) {
+        Root root = getRoot(includedFile);
+        if (root == null) {
+            return null;
+        }
+        return root.scanner.getRoot().resolve(includedFile.substring(root.prefix.length())).toFile();
+    }
+
+    boolean isIncluded(String includedFile) {
+        Root root = getRoot(includedFile);
+        return root != null && root.scanner.isIncluded(includedFile.substring(root.prefix.length()));
+    }
+
+    boolean isDocument(String includedFile) {
+        Root root = getRoot(includedFile);
+        return root != null && root.scanner.isDocument(includedFile.substring(root.prefix.length()));
+    }
+
+    private Root getRoot(String includedFile) {
+        for (Root root : roots) {
+            if (includedFile.startsWith(root.prefix)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static final class Root {
+        /**
+         * The prefix of the included files, empty or ending with the platform separator.
+         */
+        private final String prefix;
+        private final SourceScanner scanner;
+
+        private Root(String prefix, SourceScanner scanner) {
+            this.prefix = prefix.isEmpty() || prefix.endsWith(File.separator) ? prefix : prefix + File.separator;
+            this.scanner = scanner;
+        }
+    }
+}
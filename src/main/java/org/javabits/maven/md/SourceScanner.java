@@ -0,0 +1,208 @@
+package org.javabits.maven.md;
+
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.google.common.io.Files.getFileExtension;
+
+/**
+ * Discover the source files with the same Ant patterns as the {@link org.codehaus.plexus.util.DirectoryScanner},
+ * but in a single walk of the file tree: a directory is not walked if none of its files can be included
+ * or if all of them are excluded (e.g. {@code **}{@code /.git/**}), and each included file is given
+ * to the {@link Listener} as soon as it's found, already classified as Markdown document or static resource.
+ * The included files are relative to the sources directory with the platform separator, as the ones of the
+ * {@code DirectoryScanner}. The symbolic links are followed.
+ *
+ * @author Romain Gilles
+ */
+final class SourceScanner {
+
+    private static final String ANY_PATH = "**";
+
+    private final Path root;
+    private final List<String> includes;
+    private final List<String> excludes;
+    /**
+     * The directories matching these patterns have all their files excluded.
+     */
+    private final List<String> excludedDirectories = new ArrayList<>();
+    private final String documentExtension;
+
+    /**
+     * @param root              the sources directory.
+     * @param includes          the patterns of the included files.
+     * @param excludes          the patterns of the excluded files.
+     * @param defaultExcludes   {@code true} to also exclude the {@link AbstractScanner#DEFAULTEXCLUDES
+     *                          default excludes} (SCM metadata, editor temporary files...).
+     * @param documentExtension the extension of the Markdown documents.
+     */
+    SourceScanner(Path root, String[] includes, String[] excludes, boolean defaultExcludes, String documentExtension) {
+        this.root = root;
+        this.includes = normalize(Arrays.asList(includes));
+        List<String> allExcludes = new ArrayList<>(Arrays.asList(excludes));
+        if (defaultExcludes) {
+            allExcludes.addAll(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+        }
+        this.excludes = normalize(allExcludes);
+        String anyPathSuffix = File.separator + ANY_PATH;
+        for (String exclude : this.excludes) {
+            if (exclude.endsWith(anyPathSuffix)) {
+                excludedDirectories.add(exclude.substring(0, exclude.length() - anyPathSuffix.length()));
+            }
+        }
+        this.documentExtension = documentExtension;
+    }
+
+    /**
+     * Receive the included files while the file tree is walked.
+     */
+    interface Listener {
+        /**
+         * @param includedFile the path of the file relative to the sources directory.
+         * @param document     {@code true} if it's a Markdown document, {@code false} if it's a static resource.
+         * @return {@code false} to stop the scan.
+         */
+        boolean found(String includedFile, boolean document);
+    }
+
+    /**
+     * Walk the sources directory and give the included files to the listener in the order of their paths,
+     * so the order does not depend on the file system: the entries of each directory are sorted by name,
+     * a directory being sorted as its name followed by the separator. The walk ends as soon as the listener
+     * stops the scan.
+     *
+     * @return the number of included files given to the listener.
+     */
+    int scan(Listener listener) throws IOException {
+        Walk walk = new Walk(listener);
+        walk(root, walk);
+        return walk.count;
+    }
+
+    /**
+     * @return {@code false} if the listener stopped the scan.
+     */
+    private boolean walk(Path directory, Walk walk) throws IOException {
+        Path realDirectory = directory.toRealPath();
+        if (!walk.ancestors.add(realDirectory)) {
+            return true;
+        }
+        SortedMap<String, Path> entries = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // a broken symbolic link
+                    continue;
+                }
+                String name = entry.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    entries.put(name + File.separator, entry);
+                } else if (attributes.isRegularFile()) {
+                    entries.put(name, entry);
+                }
+            }
+        }
+        for (Map.Entry<String, Path> entry : entries.entrySet()) {
+            String includedFile = root.relativize(entry.getValue()).toString();
+            if (entry.getKey().endsWith(File.separator)) {
+                if (couldHoldIncluded(includedFile) && !walk(entry.getValue(), walk)) {
+                    return false;
+                }
+            } else if (isIncluded(includedFile)) {
+                walk.count++;
+                if (!walk.listener.found(includedFile, isDocument(includedFile))) {
+                    return false;
+                }
+            }
+        }
+        walk.ancestors.remove(realDirectory);
+        return true;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @param includedFile the path of a file relative to the sources directory.
+     */
+    boolean isIncluded(String includedFile) {
+        return matchesAny(includes, includedFile) && !matchesAny(excludes, includedFile);
+    }
+
+    boolean isDocument(String includedFile) {
+        return documentExtension.equals(getFileExtension(includedFile));
+    }
+
+    private boolean couldHoldIncluded(String directory) {
+        if (matchesAny(excludedDirectories, directory)) {
+            return false;
+        }
+        for (String include : includes) {
+            if (SelectorUtils.matchPatternStart(include, directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * As the {@code DirectoryScanner}, use the platform separator and match everything under the patterns
+     * ending with a separator.
+     */
+    private static List<String> normalize(List<String> patterns) {
+        List<String> normalizedPatterns = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            String normalizedPattern = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (normalizedPattern.endsWith(File.separator)) {
+                normalizedPattern += ANY_PATH;
+            }
+            normalizedPatterns.add(normalizedPattern);
+        }
+        return normalizedPatterns;
+    }
+
+    /**
+     * The state of a scan.
+     */
+    private static final class Walk {
+        private final Listener listener;
+        /**
+         * The real paths of the directories being walked, to detect the symbolic link loops.
+         */
+        private final Set<Path> ancestors = new HashSet<>();
+        private int count;
+
+        private Walk(Listener listener) {
+            this.listener = listener;
+        }
+    }
+}
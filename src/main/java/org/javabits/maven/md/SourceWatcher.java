@@ -0,0 +1,117 @@
+package org.javabits.maven.md;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watch a directory and all its sub directories, the directories created later included, and collect the
+ * modified files by bursts: the modifications are collected until none happens for a given time, so the
+ * bursts of writes produced by the editors are coalesced. When the events of a directory are lost, all the
+ * files of the directory are reported as modified.
+ *
+ * @author Romain Gilles
+ */
+final class SourceWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * @param root the directory to watch.
+     */
+    SourceWatcher(Path root) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            register(root);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the next modifications.
+     *
+     * @param timeout  the time in milliseconds to wait for a first modification.
+     * @param debounce the time in milliseconds without any new modification ending the burst.
+     * @return the created, modified and deleted files and directories, empty if nothing was modified in time.
+     */
+    Set<Path> poll(long timeout, long debounce) throws IOException, InterruptedException {
+        WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        Set<Path> modifiedFiles = new TreeSet<>();
+        do {
+            collect(key, modifiedFiles);
+            key = watchService.poll(debounce, TimeUnit.MILLISECONDS);
+        } while (key != null);
+        return modifiedFiles;
+    }
+
+    private void collect(WatchKey key, Set<Path> modifiedFiles) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                modifiedFiles.addAll(register(directory));
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            modifiedFiles.add(file);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                modifiedFiles.addAll(register(file));
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Register the given directory and all its sub directories to the watch service.
+     *
+     * @return the files found into the registered directories.
+     */
+    private Set<Path> register(Path root) throws IOException {
+        final Set<Path> files = new TreeSet<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
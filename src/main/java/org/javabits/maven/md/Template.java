@@ -0,0 +1,118 @@
+package org.javabits.maven.md;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Html template compiled once into a list of literal and variable segments.
+ * A variable is declared with the {@code ${name}} syntax. The merge streams the
+ * segments and the variable values directly into the given writer without building
+ * any intermediate String. A compiled template is immutable and can be shared between threads.
+ *
+ * @author Romain Gilles
+ */
+final class Template {
+
+    static final String TITLE = "title";
+    static final String CSS = "css";
+    static final String CONTENT = "content";
+    static final String TOC = "toc";
+    static final String NAV = "nav";
+
+    private static final String VARIABLE_START = "${";
+    private static final String VARIABLE_END = "}";
+    private static final int CACHE_SIZE = 16;
+    /**
+     * The compiled templates indexed by source, shared by all the executions within the same class loader.
+     */
+    private static final LoadingCache<String, Template> COMPILED_TEMPLATES = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build(new CacheLoader<String, Template>() {
+                @Override
+                public Template load(String template) {
+                    return compile(template);
+                }
+            });
+
+    private final List<Segment> segments;
+
+    private Template(List<Segment> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * @return the compiled template of the given source, compiled once and then cached.
+     */
+    static Template forSource(String template) {
+        return COMPILED_TEMPLATES.getUnchecked(template);
+    }
+
+    static Template compile(String template) {
+        List<Segment> segments = new ArrayList<>();
+        int index = 0;
+        while (index < template.length()) {
+            int start = template.indexOf(VARIABLE_START, index);
+            int end = start < 0 ? -1 : template.indexOf(VARIABLE_END, start + VARIABLE_START.length());
+            if (end < 0) {
+                segments.add(new Segment(template.substring(index), false));
+                break;
+            }
+            if (start > index) {
+                segments.add(new Segment(template.substring(index, start), false));
+            }
+            segments.add(new Segment(template.substring(start + VARIABLE_START.length(), end), true));
+            index = end + VARIABLE_END.length();
+        }
+        return new Template(segments);
+    }
+
+    boolean hasVariable(String name) {
+        for (Segment segment : segments) {
+            if (segment.variable && segment.text.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the template into the given writer replacing the variables by their values.
+     * The variables without value are written as is.
+     *
+     * @param values the variable values indexed by variable name.
+     * @param writer the destination of the merge.
+     * @throws IOException if the writer fails.
+     */
+    void merge(Map<String, ? extends CharSequence> values, Writer writer) throws IOException {
+        for (Segment segment : segments) {
+            if (segment.variable) {
+                CharSequence value = values.get(segment.text);
+                if (value != null) {
+                    writer.append(value);
+                } else {
+                    writer.append(VARIABLE_START).append(segment.text).append(VARIABLE_END);
+                }
+            } else {
+                writer.write(segment.text);
+            }
+        }
+    }
+
+    private static final class Segment {
+        final String text;
+        final boolean variable;
+
+        Segment(String text, boolean variable) {
+            this.text = text;
+            this.variable = variable;
+        }
+    }
+}
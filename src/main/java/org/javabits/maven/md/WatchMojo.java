@@ -0,0 +1,146 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generate the documentation and then watch the sources directory to regenerate
+ * the modified files as soon as they are saved. The parser and the template are kept
+ * warm between the generations, and only the modified files are regenerated, except when the
+ * navigation document is modified: all the pages embed it and are then regenerated.
+ * The watch stops when a line is entered if the build runs in a console, the documentation archive is then
+ * produced, otherwise it runs until the build is interrupted (Ctrl+C).
+ *
+ * @author Romain Gilles
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends AbstractMarkdownMojo {
+
+    private static final long STOP_CHECK_PERIOD = 500;
+
+    /**
+     * Time in milliseconds without any new modification to wait before the regeneration.
+     * It coalesces the bursts of writes produced by the editors.
+     */
+    @Parameter(property = "md.watch.debounce", defaultValue = "200")
+    private long debounce;
+
+    private volatile boolean stopped;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("Markdown watch");
+        Generation generation = generateDocumentation(false);
+        if (generation == null) {
+            return;
+        }
+        try (SourceWatcher watcher = new SourceWatcher(getSources().toPath())) {
+            boolean console = System.console() != null;
+            if (console) {
+                waitForEnter();
+            }
+            getLog().info("Watching " + getSources() + " press " + (console ? "Enter" : "Ctrl+C") + " to stop.");
+            while (!stopped) {
+                Set<Path> modifiedFiles = watcher.poll(STOP_CHECK_PERIOD, debounce);
+                if (!modifiedFiles.isEmpty()) {
+                    generation = regenerate(generation, modifiedFiles);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot watch the sources directory: " + getSources(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while watching: " + getSources(), e);
+        }
+        getLog().info("Watch stopped, package the documentation.");
+        generateDocumentation(true);
+    }
+
+    /**
+     * Stop the watch when a line is entered in the console. The end of the input does not stop it,
+     * as the build may run with a closed standard input.
+     */
+    private void waitForEnter() {
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (new BufferedReader(new InputStreamReader(System.in)).readLine() != null) {
+                        stopped = true;
+                    }
+                } catch (IOException e) {
+                    getLog().debug("Cannot read the standard input", e);
+                }
+            }
+        }, "md-watch-console");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Regenerate the modified files of the sources directory, or all the pages if the navigation document
+     * was modified, the deleted files are removed from the output directory.
+     *
+     * @param modifiedFiles the created, modified and deleted files and directories.
+     * @return the generation state to be reused for the next modifications.
+     */
+    Generation regenerate(Generation generation, Set<Path> modifiedFiles) throws IOException {
+        long start = System.nanoTime();
+        for (Path modifiedFile : modifiedFiles) {
+            if (generation.isNavigation(modifiedFile)) {
+                // the settings of the manifest include the navigation: all the pages are regenerated
+                getLog().info("Navigation modified, regenerate all the pages");
+                Generation newGeneration;
+                try {
+                    newGeneration = generateSources(false);
+                } catch (MojoExecutionException e) {
+                    getLog().error("Cannot regenerate the pages", e);
+                    return generation;
+                }
+                if (newGeneration == null) {
+                    return generation;
+                }
+                reportBrokenLinks(newGeneration);
+                getLog().info("Regenerated all the pages in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                return newGeneration;
+            }
+        }
+        int count = 0;
+        SourceScanner scanner = newSourceScanner();
+        generation.startTimeBudget();
+        for (Path modifiedFile : modifiedFiles) {
+            String includedFile = getSources().toPath().relativize(modifiedFile).toString();
+            if (Files.isDirectory(modifiedFile) || !scanner.isIncluded(includedFile)) {
+                continue;
+            }
+            try {
+                if (Files.exists(modifiedFile)) {
+                    getLog().info("Regenerate: " + includedFile);
+                    generation.generate(includedFile);
+                } else {
+                    getLog().info("Delete: " + includedFile);
+                    generation.remove(includedFile);
+                }
+                count++;
+            } catch (IOException | RuntimeException e) {
+                getLog().error("Cannot generate from: " + includedFile, e);
+            }
+        }
+        if (count > 0) {
+            generation.store();
+            reportBrokenLinks(generation);
+            getLog().info("Regenerated " + count + " files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        return generation;
+    }
+}
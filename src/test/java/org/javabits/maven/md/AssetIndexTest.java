@@ -0,0 +1,140 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class AssetIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private SourceScanner scanner;
+
+    @Before
+    public void setUp() throws Exception {
+        sources = folder.newFolder("md");
+        write("icon.gif", "GIF89a");
+        write("api/icon.gif", "GIF89a");
+        write("api/logo.PNG", "PNG");
+        write("api/guide.md", "# Guide");
+        scanner = new SourceScanner(sources.toPath(), new String[]{"**/*"}, new String[0], true, "md");
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(sources, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    private AssetIndex newIndex() throws Exception {
+        return AssetIndex.load(new File(folder.getRoot(), AssetIndex.FILE_NAME), "settings", SourceRoots.of(scanner));
+    }
+
+    @Test
+    public void testGetAssetPath() throws Exception {
+        AssetIndex index = newIndex();
+        String assetPath = index.getAssetPath("icon.gif");
+        assertThat(assetPath.matches("md-assets/[0-9a-f]{16}\\.gif"), is(true));
+        assertThat(index.getAssetPath("api/icon.gif"), is(assetPath));
+        assertThat(index.getAssetPath("api/logo.PNG").endsWith(".png"), is(true));
+        assertThat(index.getAssetPath("api/guide.md"), nullValue());
+        assertThat(index.getAssetPath("missing.gif"), nullValue());
+        assertThat(index.claim(assetPath), is(true));
+        assertThat(index.claim(assetPath), is(false));
+    }
+
+    @Test
+    public void testGetAssetPathOfUnchangedResource() throws Exception {
+        AssetIndex index = newIndex();
+        String assetPath = index.getAssetPath("icon.gif");
+        index.store();
+        // the fingerprinted file of an unchanged resource is not computed again
+        File indexFile = new File(folder.getRoot(), AssetIndex.FILE_NAME);
+        Files.write(Files.toString(indexFile, Charsets.ISO_8859_1).replace(assetPath, "md-assets/0123456789abcdef.gif"),
+                indexFile, Charsets.ISO_8859_1);
+        assertThat(newIndex().getAssetPath("icon.gif"), is("md-assets/0123456789abcdef.gif"));
+        assertThat(newIndex().getAssetPath("api/icon.gif"), is(assetPath));
+        write("icon.gif", "GIF89a changed");
+        assertThat(newIndex().getAssetPath("icon.gif").matches("md-assets/[0-9a-f]{16}\\.gif"), is(true));
+        assertThat(newIndex().getAssetPath("icon.gif"), is(not("md-assets/0123456789abcdef.gif")));
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+        AssetIndex index = newIndex();
+        String html = index.rewrite("api/index.md", "<p><img src=\"icon.gif\" alt=\"icon\"> <a href=\"logo.PNG?v=1#top\">logo</a>"
+                + " <a href=\"guide.html#install\">guide</a> <a href=\"http://javabits.org/icon.gif\">site</a>"
+                + " <img src=\"missing.gif\"></p>");
+        String icon = index.getAssetPath("api/icon.gif");
+        String logo = index.getAssetPath("api/logo.PNG");
+        assertThat(html, containsString("src=\"../" + icon + "\""));
+        assertThat(html, containsString("href=\"../" + logo + "?v=1#top\""));
+        assertThat(html, containsString("href=\"guide.html#install\""));
+        assertThat(html, containsString("href=\"http://javabits.org/icon.gif\""));
+        assertThat(html, containsString("src=\"missing.gif\""));
+        assertThat(index.getReferencingPages("api/icon.gif"), is(Collections.singleton("api/index.md")));
+    }
+
+    @Test
+    public void testReusePage() throws Exception {
+        AssetIndex index = newIndex();
+        index.rewrite("index.md", "<img src=\"icon.gif\"><img src=\"new.gif\">");
+        index.store();
+
+        assertThat(newIndex().reusePage("index.md"), is(true));
+        assertThat(newIndex().reusePage("other.md"), is(false));
+        write("icon.gif", "GIF89a changed");
+        assertThat(newIndex().reusePage("index.md"), is(false));
+        write("icon.gif", "GIF89a");
+        write("new.gif", "GIF89a new");
+        assertThat(newIndex().reusePage("index.md"), is(false));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        File outputDir = folder.newFolder("docs");
+        File stale = new File(outputDir, "md-assets/0123456789abcdef.gif");
+        Files.createParentDirs(stale);
+        Files.write("stale", stale, Charsets.UTF_8);
+        AssetIndex index = newIndex();
+        index.add("base.css", "md-assets/fedcba9876543210.css");
+        String icon = index.getAssetPath("icon.gif");
+        index.getAssetPath("api/icon.gif");
+        File live = new File(outputDir, icon);
+        Files.write("GIF89a", live, Charsets.UTF_8);
+        File liveSibling = Gzip.getSibling(live);
+        Files.write("gz", liveSibling, Charsets.UTF_8);
+
+        File manifest = index.write(outputDir);
+        assertThat(manifest, is(new File(outputDir, AssetIndex.MANIFEST_FILE_NAME)));
+        assertThat(Files.toString(manifest, Charsets.UTF_8), is("{\n"
+                + "\"api/icon.gif\":\"" + icon + "\",\n"
+                + "\"base.css\":\"md-assets/fedcba9876543210.css\",\n"
+                + "\"icon.gif\":\"" + icon + "\"\n"
+                + "}\n"));
+        assertThat(stale.exists(), is(false));
+        assertThat(live.exists(), is(true));
+        assertThat(liveSibling.exists(), is(true));
+        // an unchanged manifest is not written again
+        manifest.setLastModified(1000000000000L);
+        index.write(outputDir);
+        assertThat(manifest.lastModified(), is(1000000000000L));
+    }
+}
@@ -0,0 +1,106 @@
+package org.javabits.maven.md;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class BuildManifestTest {
+
+    private static final String SETTINGS = BuildManifest.fingerprint("0", "md");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUpdateWithoutPreviousManifest() throws Exception {
+        BuildManifest manifest = BuildManifest.load(new File(folder.getRoot(), BuildManifest.FILE_NAME), SETTINGS);
+        assertThat(manifest.update("index.md", "1"), is(false));
+    }
+
+    @Test
+    public void testUpdateUnchangedSource() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.load(file, SETTINGS);
+        assertThat(manifest.update("index.md", "1"), is(true));
+        assertThat(manifest.update("user-guide/user-guide.md", "3"), is(false));
+    }
+
+    @Test
+    public void testUpdateWithDifferentSettings() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.load(file, BuildManifest.fingerprint("1", "md"));
+        assertThat(manifest.update("index.md", "1"), is(false));
+    }
+
+    @Test
+    public void testGetRemovedSources() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.load(file, SETTINGS);
+        manifest.update("index.md", "1");
+        assertThat(manifest.getRemovedSources().size(), is(1));
+        assertThat(manifest.getRemovedSources(), hasItem("user-guide/user-guide.md"));
+    }
+
+    @Test
+    public void testGetRemovedSourcesWithDifferentSettings() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.load(file, BuildManifest.fingerprint("1", "md"));
+        assertThat(manifest.update("index.md", "1"), is(false));
+        assertThat(manifest.getRemovedSources().size(), is(1));
+        assertThat(manifest.getRemovedSources(), hasItem("user-guide/user-guide.md"));
+    }
+
+    @Test
+    public void testLoadSources() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.loadSources(file, SETTINGS);
+        assertThat(manifest.update("index.md", "1"), is(false));
+        assertThat(manifest.getRemovedSources().size(), is(1));
+        assertThat(manifest.getRemovedSources(), hasItem("user-guide/user-guide.md"));
+        assertThat(manifest.getArchiveDigest(), is(nullValue()));
+    }
+
+    @Test
+    public void testArchiveDigest() throws Exception {
+        File file = storeManifest();
+        BuildManifest manifest = BuildManifest.load(file, SETTINGS);
+        assertThat(manifest.getArchiveDigest(), is(nullValue()));
+        manifest.setArchiveDigest("digest");
+        manifest.store();
+        assertThat(BuildManifest.load(file, SETTINGS).getArchiveDigest(), is("digest"));
+        assertThat(BuildManifest.load(file, BuildManifest.fingerprint("1", "md")).getArchiveDigest(), is(nullValue()));
+    }
+
+    @Test
+    public void testGetDigest() throws Exception {
+        BuildManifest manifest = BuildManifest.empty(new File(folder.getRoot(), BuildManifest.FILE_NAME), SETTINGS);
+        manifest.update("index.md", "1");
+        manifest.update("user-guide/user-guide.md", "2");
+        BuildManifest otherManifest = BuildManifest.empty(new File(folder.getRoot(), BuildManifest.FILE_NAME), SETTINGS);
+        otherManifest.update("user-guide/user-guide.md", "2");
+        otherManifest.update("index.md", "1");
+        assertThat(manifest.getDigest(), is(otherManifest.getDigest()));
+        otherManifest.update("index.md", "3");
+        assertThat(manifest.getDigest(), is(not(otherManifest.getDigest())));
+    }
+
+    private File storeManifest() throws Exception {
+        File file = new File(folder.getRoot(), BuildManifest.FILE_NAME);
+        BuildManifest manifest = BuildManifest.empty(file, SETTINGS);
+        manifest.update("index.md", "1");
+        manifest.update("user-guide/user-guide.md", "2");
+        manifest.store();
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class BuildStatisticsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long millisAgo(long millis) {
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testGetSummary() throws Exception {
+        BuildStatistics statistics = new BuildStatistics();
+        statistics.recordFile(1024 * 1024);
+        statistics.recordFile(1024 * 1024);
+        statistics.record(BuildStatistics.Phase.RENDER, millisAgo(2));
+        statistics.record(BuildStatistics.Phase.RENDER, millisAgo(1));
+        statistics.record(BuildStatistics.Phase.COPY, millisAgo(1));
+        statistics.recordDocument("fast.md", millisAgo(1), 10);
+        statistics.recordDocument("slow.md", millisAgo(50), 20);
+        statistics.stop();
+        List<String> summary = statistics.getSummary(1);
+        assertThat(summary.size(), is(5));
+        assertThat(summary.get(0), startsWith("Generated 2 files (2.00 MB) in "));
+        assertThat(summary.get(1), startsWith("  render        2 x "));
+        assertThat(summary.get(2), startsWith("  copy          1 x "));
+        assertThat(summary.get(3), is("Slowest documents:"));
+        assertThat(summary.get(4).endsWith(" ms  slow.md"), is(true));
+    }
+
+    @Test
+    public void testGetSummaryOfEmptyBuild() throws Exception {
+        BuildStatistics statistics = new BuildStatistics();
+        statistics.stop();
+        List<String> summary = statistics.getSummary(10);
+        assertThat(summary.size(), is(1));
+        assertThat(summary.get(0), startsWith("Generated 0 files (0.00 MB) in "));
+    }
+
+    @Test
+    public void testWriteJson() throws Exception {
+        BuildStatistics statistics = new BuildStatistics();
+        statistics.recordFile(30);
+        statistics.record(BuildStatistics.Phase.READ, millisAgo(1));
+        statistics.recordDocument("guide/\"new\".md", millisAgo(1), 30);
+        statistics.stop();
+        File file = new File(folder.getRoot(), "report/md-report.json");
+        statistics.writeJson(file);
+        String json = Files.toString(file, Charsets.UTF_8);
+        assertThat(json, startsWith("{\n  \"durationMs\": "));
+        assertThat(json, containsString("\n  \"files\": 1,\n  \"bytes\": 30,\n"));
+        assertThat(json, containsString("\n    \"read\": {\"count\": 1, \"timeMs\": "));
+        assertThat(json, containsString("\n    \"archive\": {\"count\": 0, \"timeMs\": 0.000}\n  },\n"));
+        assertThat(json, containsString("\n  \"documents\": [\n    {\"name\": \"guide/\\\"new\\\".md\", \"timeMs\": "));
+        assertThat(json.endsWith(", \"bytes\": 30}\n  ]\n}\n"), is(true));
+    }
+
+    @Test
+    public void testWriteJsonOfEmptyBuild() throws Exception {
+        BuildStatistics statistics = new BuildStatistics();
+        statistics.stop();
+        File file = folder.newFile("md-report.json");
+        statistics.writeJson(file);
+        String json = Files.toString(file, Charsets.UTF_8);
+        assertThat(json, containsString("\n  \"files\": 0,\n  \"bytes\": 0,\n"));
+        assertThat(json, containsString("\n    \"scan\": {\"count\": 0, \"timeMs\": 0.000},\n"));
+        assertThat(json.endsWith("\n  \"documents\": [\n  ]\n}\n"), is(true));
+    }
+}
@@ -0,0 +1,99 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+import org.pegdown.Extensions;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class CommonMarkRendererTest {
+
+    private static final String EXPECTED_TITLE = "The Title";
+
+    private final CommonMarkRenderer renderer = new CommonMarkRenderer(Extensions.NONE, "md");
+
+    @Test
+    public void testRenderSetextTitle() throws Exception {
+        Page page = renderer.render(Resources.toString("/test-empty-first-lines.md").toCharArray());
+        assertThat(page.getTitle(), is(EXPECTED_TITLE));
+        assertThat(page.getHeadings().size(), is(3));
+        assertThat(page.getHeadings().get(1).getLevel(), is(2));
+        assertThat(page.getHeadings().get(1).getId(), is("an-header"));
+        assertThat(page.getHtml(), containsString("<h1 id=\"the-title\">The Title</h1>"));
+    }
+
+    @Test
+    public void testRenderAtxTitle() throws Exception {
+        Page page = renderer.render("# The *Title*\n\nbla bla bla\n".toCharArray());
+        assertThat(page.getTitle(), is(EXPECTED_TITLE));
+    }
+
+    @Test
+    public void testRenderWithoutHeading() throws Exception {
+        Page page = renderer.render("\nbla bla bla\nbla bla\n".toCharArray());
+        assertThat(page.getTitle(), is("bla bla bla"));
+        assertThat(page.getTableOfContents(), is(""));
+    }
+
+    @Test
+    public void testRenderDuplicateHeadings() throws Exception {
+        Page page = renderer.render("# Title\n\n## Part\n\n## Part\n".toCharArray());
+        assertThat(page.getHeadings().get(2).getId(), is("part-1"));
+        assertThat(page.getHtml(), containsString("<h2 id=\"part-1\">Part</h2>"));
+    }
+
+    @Test
+    public void testRenderSuppressedHtml() throws Exception {
+        String document = "# Title\n\n<div class=\"note\">\nblock <b>html</b>\n</div>\n\nA paragraph with <b>inline</b> html and <!-- comment -->.\n";
+        for (int options : new int[]{Extensions.NONE, Extensions.SUPPRESS_HTML_BLOCKS, Extensions.SUPPRESS_INLINE_HTML, Extensions.SUPPRESS_ALL_HTML}) {
+            String pegDownHtml = new PegDownRenderer(options, "md", 0).render(document.toCharArray()).getHtml();
+            String commonMarkHtml = new CommonMarkRenderer(options, "md").render(document.toCharArray()).getHtml();
+            assertThat("options: " + options, normalize(commonMarkHtml), is(normalize(pegDownHtml)));
+        }
+        assertThat(normalize(new CommonMarkRenderer(Extensions.SUPPRESS_HTML_BLOCKS, "md").render(document.toCharArray()).getHtml()),
+                is("<h1 id=\"title\">Title</h1><p>A paragraph with <b>inline</b> html and <!-- comment -->.</p>"));
+    }
+
+    /**
+     * The engines differ by the line breaks between the blocks.
+     */
+    private static String normalize(String html) {
+        return html.replaceAll(">\\s+<", "><").trim();
+    }
+
+    @Test
+    public void testRenderTables() throws Exception {
+        String table = "| a | b |\n|---|---|\n| 1 | 2 |\n";
+        assertThat(new CommonMarkRenderer(Extensions.TABLES, "md").render(table.toCharArray()).getHtml(), containsString("<table>"));
+        assertThat(renderer.render(table.toCharArray()).getHtml().contains("<table>"), is(false));
+    }
+
+    @Test
+    public void testRenderReusedRenderer() throws Exception {
+        renderer.render("# Title\n".toCharArray());
+        Page page = renderer.render("# Title\n".toCharArray());
+        assertThat(page.getHeadings().get(0).getId(), is("title"));
+    }
+
+    @Test
+    public void testRenderLinks() throws Exception {
+        Page page = renderer.render(("[guide](guide.md#install) [ref][1] [site](http://javabits.org/a.md)\n\n"
+                + "[1]: ../api/index.md\n").toCharArray());
+        assertThat(page.getHtml(), containsString("href=\"guide.html#install\""));
+        assertThat(page.getHtml(), containsString("href=\"../api/index.html\""));
+        assertThat(page.getHtml(), containsString("href=\"http://javabits.org/a.md\""));
+        assertThat(page.getLinks(), is(Arrays.asList("guide.html#install", "../api/index.html", "http://javabits.org/a.md")));
+    }
+
+    @Test
+    public void testRenderTerms() throws Exception {
+        Page page = renderer.render("# The Title\n\nSee the `getTitle()` [guide](guide.md), a <b>bold</b> move.\n\n    int x = 42;\n".toCharArray());
+        assertThat(page.getTerms(), is(Arrays.asList("42", "bold", "gettitle", "guide", "int", "move", "see", "the", "title")));
+    }
+}
@@ -0,0 +1,87 @@
+package org.javabits.maven.md;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class DocsArchiveTest {
+
+    private static final byte[] HTML = "<html><body><p>bla bla bla bla bla bla bla bla bla</p></body></html>".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrite() throws Exception {
+        File file = folder.newFile("docs.zip");
+        try (DocsArchive archive = new DocsArchive(file, "final/docs/")) {
+            archive.write(DocsArchive.compress("index.html", HTML, System.currentTimeMillis()));
+            archive.write(DocsArchive.compress("user-guide/image.png", HTML, System.currentTimeMillis()));
+            archive.write(DocsArchive.compress("index.html", new byte[0], System.currentTimeMillis()));
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            List<String> names = Arrays.asList("final/", "final/docs/", "final/docs/index.html",
+                    "final/docs/user-guide/", "final/docs/user-guide/image.png");
+            List<String> entryNames = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                entryNames.add(entry.getName());
+            }
+            assertThat(entryNames, is(names));
+            ZipEntry html = zipFile.getEntry("final/docs/index.html");
+            assertThat(html.getMethod(), is(ZipEntry.DEFLATED));
+            assertThat(ByteStreams.toByteArray(zipFile.getInputStream(html)), is(HTML));
+            ZipEntry image = zipFile.getEntry("final/docs/user-guide/image.png");
+            assertThat(image.getMethod(), is(ZipEntry.STORED));
+            assertThat(ByteStreams.toByteArray(zipFile.getInputStream(image)), is(HTML));
+        }
+    }
+
+    @Test
+    public void testWriteLargeStoredFile() throws Exception {
+        byte[] content = new byte[(int) DocsArchive.STREAM_THRESHOLD + 10];
+        new Random(1).nextBytes(content);
+        File image = folder.newFile("image.png");
+        Files.write(content, image);
+        File file = folder.newFile("docs.zip");
+        try (DocsArchive archive = new DocsArchive(file, "docs/")) {
+            archive.write(DocsArchive.compress("image.png", image, System.currentTimeMillis()));
+            archive.write(DocsArchive.compress("index.html", HTML, System.currentTimeMillis()));
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry entry = zipFile.getEntry("docs/image.png");
+            assertThat(entry.getMethod(), is(ZipEntry.STORED));
+            assertThat(ByteStreams.toByteArray(zipFile.getInputStream(entry)), is(content));
+            assertThat(ByteStreams.toByteArray(zipFile.getInputStream(zipFile.getEntry("docs/index.html"))), is(HTML));
+        }
+    }
+
+    @Test
+    public void testWriteIsReproducible() throws Exception {
+        File file = folder.newFile("docs.zip");
+        File otherFile = folder.newFile("other-docs.zip");
+        for (File archiveFile : Arrays.asList(file, otherFile)) {
+            try (DocsArchive archive = new DocsArchive(archiveFile, "docs/")) {
+                archive.write(DocsArchive.compress("index.html", HTML, 315532800000L));
+                archive.write(DocsArchive.compress("user-guide/user-guide.html", HTML, 315532800000L));
+            }
+        }
+        assertThat(Files.toByteArray(otherFile), is(Files.toByteArray(file)));
+    }
+}
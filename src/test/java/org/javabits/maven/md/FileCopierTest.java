@@ -0,0 +1,64 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class FileCopierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCopy() throws Exception {
+        File source = newSource("bla bla bla");
+        File target = new File(folder.getRoot(), "target.txt");
+        assertThat(FileCopier.copy(source, target, FileCopier.Strategy.COPY), is(true));
+        assertThat(Files.toString(target, Charsets.UTF_8), is("bla bla bla"));
+        assertThat(FileCopier.isUpToDate(source, target), is(true));
+    }
+
+    @Test
+    public void testCopyUpToDate() throws Exception {
+        File source = newSource("bla bla bla");
+        File target = new File(folder.getRoot(), "target.txt");
+        FileCopier.copy(source, target, FileCopier.Strategy.COPY);
+        assertThat(FileCopier.copy(source, target, FileCopier.Strategy.COPY), is(false));
+    }
+
+    @Test
+    public void testCopyModified() throws Exception {
+        File source = newSource("bla bla bla");
+        File target = new File(folder.getRoot(), "target.txt");
+        FileCopier.copy(source, target, FileCopier.Strategy.COPY);
+        Files.write("bla bla", source, Charsets.UTF_8);
+        assertThat(source.setLastModified(target.lastModified() + 2000), is(true));
+        assertThat(FileCopier.copy(source, target, FileCopier.Strategy.COPY), is(true));
+        assertThat(Files.toString(target, Charsets.UTF_8), is("bla bla"));
+    }
+
+    @Test
+    public void testLink() throws Exception {
+        File source = newSource("bla bla bla");
+        File target = new File(folder.getRoot(), "target.txt");
+        assertThat(FileCopier.copy(source, target, FileCopier.Strategy.LINK), is(true));
+        assertThat(Files.toString(target, Charsets.UTF_8), is("bla bla bla"));
+        assertThat(FileCopier.isUpToDate(source, target), is(true));
+    }
+
+    private File newSource(String content) throws Exception {
+        File source = folder.newFile("source.txt");
+        Files.write(content, source, Charsets.UTF_8);
+        return source;
+    }
+}
@@ -0,0 +1,164 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Romain Gilles
+ */
+public class FileProcessorTest {
+
+    private static final int FILES = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static AbstractMarkdownMojo.FileProcessor newProcessor(AbstractMarkdownMojo.FileTask task, DocsArchive archive, int threads) {
+        return new AbstractMarkdownMojo.FileProcessor("Test", task, archive, new BuildStatistics(), threads, new Mojos.QuietLog());
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Test
+    public void testCompleteInOrder() throws Exception {
+        File file = folder.newFile("docs.zip");
+        List<String> found = new ArrayList<>();
+        String[] includedFiles;
+        try (DocsArchive archive = new DocsArchive(file, "docs/");
+             AbstractMarkdownMojo.FileProcessor processor = newProcessor(new AbstractMarkdownMojo.FileTask() {
+                 @Override
+                 public DocsArchive.Entry process(String includedFile, boolean document) throws IOException {
+                     // the last files found are the first ones done
+                     sleep(2 * (FILES - Integer.parseInt(includedFile.substring(4, 6))));
+                     return DocsArchive.compress(includedFile, includedFile.getBytes(), 0);
+                 }
+             }, archive, 4)) {
+            for (int i = 0; i < FILES; i++) {
+                String includedFile = String.format("page%02d.html", i);
+                found.add(includedFile);
+                assertThat(processor.found(includedFile, true), is(true));
+            }
+            includedFiles = processor.complete();
+        }
+        assertThat(Arrays.asList(includedFiles), is(found));
+        List<String> entryNames = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                entryNames.add(entry.getName());
+            }
+        }
+        List<String> names = new ArrayList<>();
+        names.add("docs/");
+        for (String includedFile : found) {
+            names.add("docs/" + includedFile);
+        }
+        assertThat(entryNames, is(names));
+    }
+
+    @Test
+    public void testReportFirstFailingFileInScanOrder() throws Exception {
+        final CountDownLatch laterFailed = new CountDownLatch(1);
+        try (AbstractMarkdownMojo.FileProcessor processor = newProcessor(new AbstractMarkdownMojo.FileTask() {
+            @Override
+            public DocsArchive.Entry process(String includedFile, boolean document) throws IOException {
+                switch (includedFile) {
+                    case "b.md":
+                        try {
+                            laterFailed.await();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                        sleep(20);
+                        throw new IOException("b.md failed");
+                    case "c.md":
+                        laterFailed.countDown();
+                        throw new IOException("c.md failed");
+                    default:
+                        return null;
+                }
+            }
+        }, null, 3)) {
+            processor.found("a.md", true);
+            processor.found("b.md", true);
+            processor.found("c.md", true);
+            processor.complete();
+            fail("The failure of b.md must be reported");
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage(), is("IO exception when generated from: b.md"));
+            assertThat(e.getCause().getMessage(), is("b.md failed"));
+        }
+    }
+
+    @Test
+    public void testFailureStopsScanAndShutsDownPool() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch never = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger interrupted = new AtomicInteger();
+        AbstractMarkdownMojo.FileProcessor processor = newProcessor(new AbstractMarkdownMojo.FileTask() {
+            @Override
+            public DocsArchive.Entry process(String includedFile, boolean document) throws IOException {
+                try {
+                    if (includedFile.equals("0.md")) {
+                        // fail once an other task is running
+                        blocked.await();
+                        throw new IOException("0.md failed");
+                    }
+                    started.incrementAndGet();
+                    blocked.countDown();
+                    never.await();
+                    return null;
+                } catch (InterruptedException e) {
+                    // the task takes a while to end, close() must wait for it
+                    sleep(50);
+                    interrupted.incrementAndGet();
+                    throw new InterruptedIOException();
+                }
+            }
+        }, null, 2);
+        int accepted = 0;
+        try {
+            while (accepted < 100 && processor.found(accepted + ".md", true)) {
+                accepted++;
+            }
+            // the scan stopped on the failure, as soon as it was detected
+            assertThat(accepted < 100, is(true));
+            assertThat(processor.found("last.md", true), is(false));
+            try {
+                processor.complete();
+                fail("The failure of 0.md must be reported");
+            } catch (MojoExecutionException e) {
+                assertThat(e.getMessage(), is("IO exception when generated from: 0.md"));
+            }
+        } finally {
+            processor.close();
+        }
+        // all the started tasks ended before close() returned
+        assertThat(started.get() > 0, is(true));
+        assertThat(interrupted.get(), is(started.get()));
+    }
+}
@@ -0,0 +1,76 @@
+package org.javabits.maven.md;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class FragmentCacheTest {
+
+    private static final byte[] CONTENT = "# Title\n\n## Part\n\nbla bla\n".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGetAndPut() throws Exception {
+        FragmentCache cache = new FragmentCache(folder.getRoot(), Long.MAX_VALUE, "settings");
+        String key = cache.key(ByteBuffer.wrap(CONTENT), "UTF-8");
+        assertThat(cache.get(key), is(nullValue()));
+        Page page = new Page("Title", "<h1 id=\"title\">Title</h1>", Arrays.asList(new Heading(1, "Title", "title"), new Heading(2, "Part", "part")),
+                Arrays.asList("guide.html#install", "http://javabits.org"), Arrays.asList("part", "title"));
+        cache.put(key, page);
+        Page cachedPage = new FragmentCache(folder.getRoot(), Long.MAX_VALUE, "settings").get(key);
+        assertThat(cachedPage.getTitle(), is(page.getTitle()));
+        assertThat(cachedPage.getHtml(), is(page.getHtml()));
+        assertThat(cachedPage.getTableOfContents(), is(page.getTableOfContents()));
+        assertThat(cachedPage.getLinks(), is(page.getLinks()));
+        assertThat(cachedPage.getTerms(), is(page.getTerms()));
+        assertThat(cache.getHits(), is(0));
+        assertThat(cache.getMisses(), is(1));
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        FragmentCache cache = new FragmentCache(folder.getRoot(), Long.MAX_VALUE, "settings");
+        assertThat(cache.key(ByteBuffer.wrap(CONTENT), "UTF-8"), is(cache.key(ByteBuffer.wrap(CONTENT.clone()), "UTF-8")));
+        assertThat(cache.key(ByteBuffer.wrap(CONTENT), "UTF-8"), is(not(cache.key(ByteBuffer.wrap(CONTENT), "ISO-8859-1"))));
+        assertThat(cache.key(ByteBuffer.wrap(CONTENT), "UTF-8"), is(not(new FragmentCache(folder.getRoot(), Long.MAX_VALUE, "other").key(ByteBuffer.wrap(CONTENT), "UTF-8"))));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        FragmentCache cache = new FragmentCache(folder.getRoot(), 1, "settings");
+        Page page = new Page("Title", "<p>bla bla</p>", Arrays.<Heading>asList());
+        String[] keys = new String[3];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = cache.key(ByteBuffer.wrap(String.valueOf(i).getBytes()), "UTF-8");
+            cache.put(keys[i], page);
+        }
+        // the size of one page
+        long pageSize = 0;
+        for (File shard : folder.getRoot().listFiles()) {
+            for (File file : shard.listFiles()) {
+                pageSize = file.length();
+                file.setLastModified(System.currentTimeMillis() - 10000);
+            }
+        }
+        cache = new FragmentCache(folder.getRoot(), 2 * pageSize, "settings");
+        assertThat(cache.get(keys[0]), is(notNullValue()));
+        assertThat(cache.evict(), is(1));
+        assertThat(cache.get(keys[0]), is(notNullValue()));
+        assertThat(cache.get(keys[1]) == null || cache.get(keys[2]) == null, is(true));
+    }
+}
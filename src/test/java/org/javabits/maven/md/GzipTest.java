@@ -0,0 +1,60 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class GzipTest {
+
+    private static final String CONTENT = "<html><body><p>bla bla bla bla bla bla</p></body></html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIsCompressed() throws Exception {
+        assertThat(Gzip.isCompressed("image.PNG"), is(true));
+        assertThat(Gzip.isCompressed("index.html.gz"), is(true));
+        assertThat(Gzip.isCompressed("index.html"), is(false));
+        assertThat(Gzip.isCompressed("base.css"), is(false));
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        File file = folder.newFile("index.html");
+        Files.write(CONTENT, file, Charsets.UTF_8);
+        assertThat(Gzip.isUpToDate(file), is(false));
+        Gzip.compress(file);
+        File sibling = Gzip.getSibling(file);
+        assertThat(sibling.getName(), is("index.html.gz"));
+        assertThat(Gzip.isUpToDate(file), is(true));
+        try (InputStream input = new GZIPInputStream(new FileInputStream(sibling))) {
+            assertThat(new String(ByteStreams.toByteArray(input), Charsets.UTF_8), is(CONTENT));
+        }
+        // the sibling does not depend on the file name or time
+        File otherFile = folder.newFile("other.html");
+        Files.write(CONTENT, otherFile, Charsets.UTF_8);
+        assertThat(otherFile.setLastModified(file.lastModified() - 10000), is(true));
+        Gzip.compress(otherFile);
+        assertThat(Files.toByteArray(Gzip.getSibling(otherFile)), is(Files.toByteArray(sibling)));
+
+        assertThat(file.setLastModified(file.lastModified() - 10000), is(true));
+        assertThat(Gzip.isUpToDate(file), is(false));
+        Gzip.deleteSibling(file);
+        assertThat(sibling.exists(), is(false));
+    }
+}
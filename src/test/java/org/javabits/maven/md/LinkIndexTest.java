@@ -0,0 +1,66 @@
+package org.javabits.maven.md;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class LinkIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Page page(String anchor, String... links) {
+        return new Page("Title", "<h1 id=\"" + anchor + "\">Title</h1>\n<p><a name=\"raw\"></a></p>",
+                Arrays.asList(new Heading(1, "Title", anchor)), Arrays.asList(links), Collections.<String>emptyList());
+    }
+
+    private static LinkIndex newIndex(File file) {
+        LinkIndex index = LinkIndex.empty(file, "settings");
+        index.addFile("index.html");
+        index.addFile("base.css");
+        index.addFile("api/guide.html");
+        index.addFile("api/logo.png");
+        return index;
+    }
+
+    @Test
+    public void testGetBrokenLinks() throws Exception {
+        LinkIndex index = newIndex(new File(folder.getRoot(), LinkIndex.FILE_NAME));
+        index.addPage("index.md", page("title", "api/guide.html#install", "api/guide.html#missing", "missing.html",
+                "#title", "#other", "api/", "../outside.html", "http://javabits.org/missing.html", "/missing.html"));
+        index.addPage("api" + File.separator + "guide.md", page("install", "logo.png", "../index.html#title", "../index.html#raw", "../base.css#x"));
+        assertThat(index.getBrokenLinks(), is(Arrays.asList(
+                "index.md: broken anchor api/guide.html#missing",
+                "index.md: broken link missing.html",
+                "index.md: broken anchor #other",
+                "index.md: broken link api/")));
+    }
+
+    @Test
+    public void testReusePage() throws Exception {
+        File file = new File(folder.getRoot(), LinkIndex.FILE_NAME);
+        LinkIndex index = newIndex(file);
+        index.addPage("index.md", page("title", "missing.html"));
+        index.store();
+
+        LinkIndex loadedIndex = LinkIndex.load(file, "settings");
+        loadedIndex.addFile("index.html");
+        assertThat(loadedIndex.reusePage("other.md"), is(false));
+        assertThat(loadedIndex.reusePage("index.md"), is(true));
+        assertThat(loadedIndex.getBrokenLinks(), is(Arrays.asList("index.md: broken link missing.html")));
+        loadedIndex.remove("index.md", "index.html");
+        assertThat(loadedIndex.getBrokenLinks(), is(Collections.<String>emptyList()));
+
+        assertThat(LinkIndex.load(file, "other settings").reusePage("index.md"), is(false));
+    }
+}
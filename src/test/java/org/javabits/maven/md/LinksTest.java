@@ -0,0 +1,62 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class LinksTest {
+
+    @Test
+    public void testIsExternal() throws Exception {
+        assertThat(Links.isExternal("http://javabits.org"), is(true));
+        assertThat(Links.isExternal("mailto:romain@javabits.org"), is(true));
+        assertThat(Links.isExternal("//javabits.org/guide.md"), is(true));
+        assertThat(Links.isExternal("/guide.md"), is(true));
+        assertThat(Links.isExternal("guide.md"), is(false));
+        assertThat(Links.isExternal("#install"), is(false));
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+        assertThat(Links.rewrite("guide.md", "md"), is("guide.html"));
+        assertThat(Links.rewrite("../api/guide.md#install", "md"), is("../api/guide.html#install"));
+        assertThat(Links.rewrite("guide.md?q=1#install", "md"), is("guide.html?q=1#install"));
+        assertThat(Links.rewrite("guide.markdown", "md"), is("guide.markdown"));
+        assertThat(Links.rewrite("guide.markdown", "markdown"), is("guide.html"));
+        assertThat(Links.rewrite("guide.xmd", "md"), is("guide.xmd"));
+        assertThat(Links.rewrite("api/.md", "md"), is("api/.md"));
+        assertThat(Links.rewrite("http://javabits.org/guide.md", "md"), is("http://javabits.org/guide.md"));
+        assertThat(Links.rewrite("#install", "md"), is("#install"));
+    }
+
+    @Test
+    public void testGetPathAndFragment() throws Exception {
+        assertThat(Links.getPath("user%20guide.html?q=1#a%20b"), is("user guide.html"));
+        assertThat(Links.getFragment("user%20guide.html?q=1#a%20b"), is("a b"));
+        assertThat(Links.getPath("#install"), is(""));
+        assertThat(Links.getFragment("guide.html"), is(""));
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        assertThat(Links.resolve("guide.html", "api/index.html"), is("api/index.html"));
+        assertThat(Links.resolve("api/index.html", "../guide.html"), is("guide.html"));
+        assertThat(Links.resolve("api/index.html", "./v1/./index.html"), is("api/v1/index.html"));
+        assertThat(Links.resolve("api/index.html", "v1/"), is("api/v1/"));
+        assertThat(Links.resolve("guide.html", "../index.html"), is(nullValue()));
+    }
+
+    @Test
+    public void testRelativize() throws Exception {
+        assertThat(Links.relativize("guide.html", "md-assets/logo.png"), is("md-assets/logo.png"));
+        assertThat(Links.relativize("api/v1/index.html", "md-assets/logo.png"), is("../../md-assets/logo.png"));
+        assertThat(Links.relativize("api/index.html", "api/logo.png"), is("logo.png"));
+        assertThat(Links.relativize("api/index.html", "apis/logo.png"), is("../apis/logo.png"));
+        assertThat(Links.resolve("api/v1/index.html", Links.relativize("api/v1/index.html", "api/img/logo.png")), is("api/img/logo.png"));
+    }
+}
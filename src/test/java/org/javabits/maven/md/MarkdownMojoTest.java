@@ -1,12 +1,25 @@
 package org.javabits.maven.md;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.javabits.maven.md.MarkdownMojo.getDestinationFilePath;
@@ -20,6 +33,25 @@ import static org.javabits.maven.md.MarkdownMojo.getDestinationFilePath;
  */
 public class MarkdownMojoTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws Exception {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    private static String readEntry(File archive, String name) throws Exception {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (entry.getName().endsWith(name)) {
+                    return new String(ByteStreams.toByteArray(zipFile.getInputStream(entry)), Charsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
     @Test
     public void testGetDestinationFilePathSimple() throws Exception {
         assertThat(getDestinationFilePath("user-guide.md", "html"), is("user-guide.html"));
@@ -48,4 +80,75 @@ public class MarkdownMojoTest {
         assertThat(indexPath.relativize(cssPath).toString(), is("base.css"));
     }
 
+    @Test
+    public void testGenerateFingerprintsTemplateAndNavigationAssets() throws Exception {
+        File sources = folder.newFolder("md");
+        write(new File(sources, "index.md"), "# Index\n\n![logo](images/logo.png)\n");
+        write(new File(sources, "guide/guide.md"), "# Guide\n");
+        write(new File(sources, "table-content.md"), "[logo](images/logo.png)\n");
+        write(new File(sources, "images/logo.png"), "logo");
+        File template = folder.newFile("template.html");
+        write(template, "<html><head><link rel=\"icon\" href=\"images/logo.png\"></head><body>${nav}${content}</body></html>");
+        File build = folder.newFolder("target");
+        MarkdownMojo mojo = Mojos.newMojo(new MarkdownMojo(), "generate", sources, build);
+        Mojos.set(mojo, "template", template);
+        Mojos.set(mojo, "fingerprintAssets", true);
+        mojo.execute();
+
+        File[] assets = new File(build, "docs/md-assets").listFiles();
+        String logo = null;
+        for (File asset : assets) {
+            if (asset.getName().endsWith(".png")) {
+                logo = asset.getName();
+            }
+        }
+        String index = Files.toString(new File(build, "docs/index.html"), Charsets.UTF_8);
+        assertThat(index, containsString("<link rel=\"icon\" href=\"md-assets/" + logo + "\">"));
+        assertThat(index, containsString("<a href=\"md-assets/" + logo + "\">logo</a>"));
+        assertThat(index, containsString("src=\"md-assets/" + logo + "\""));
+        assertThat(index, not(containsString("images/logo.png")));
+        String guide = Files.toString(new File(build, "docs/guide/guide.html"), Charsets.UTF_8);
+        assertThat(guide, containsString("<a href=\"../md-assets/" + logo + "\">logo</a>"));
+    }
+
+    @Test
+    public void testIncrementalBuildArchivesInSinglePass() throws Exception {
+        File sources = folder.newFolder("md");
+        write(new File(sources, "index.md"), "# Index\n");
+        write(new File(sources, "guide/guide.md"), "# Guide\n");
+        File build = folder.newFolder("target");
+        Mojos.newMojo(new MarkdownMojo(), "generate", sources, build).execute();
+        File archive = new File(build, "test-docs.zip");
+        assertThat(readEntry(archive, "guide/guide.html"), containsString(">Guide</h1>"));
+
+        // an unchanged build keeps the archive
+        long time = archive.lastModified() - 60000;
+        assertThat(archive.setLastModified(time), is(true));
+        Mojos.newMojo(new MarkdownMojo(), "generate", sources, build).execute();
+        assertThat(archive.lastModified(), is(time));
+
+        write(new File(sources, "guide/guide.md"), "# Changed guide\n");
+        MarkdownMojo mojo = Mojos.newMojo(new MarkdownMojo(), "generate", sources, build);
+        RecordingLog log = new RecordingLog();
+        mojo.setLog(log);
+        mojo.execute();
+        assertThat(readEntry(archive, "guide/guide.html"), containsString(">Changed guide</h1>"));
+        assertThat(readEntry(archive, "index.html"), containsString(">Index</h1>"));
+        assertThat(archive.lastModified() != time, is(true));
+        assertThat(new File(build, "test-docs.zip.part").exists(), is(false));
+        // the entries are written by the generation, the output directory is not archived afterwards
+        assertThat(log.debug.contains("Generate 2 files (2 documents) using " + mojo.getThreads() + " threads"), is(true));
+        for (String message : log.debug) {
+            assertThat(message, not(startsWith("Archive ")));
+        }
+    }
+
+    private static class RecordingLog extends Mojos.QuietLog {
+        private final List<String> debug = new ArrayList<>();
+
+        @Override
+        public synchronized void debug(CharSequence content) {
+            debug.add(content.toString());
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package org.javabits.maven.md;
 
+import com.google.common.base.Strings;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.javabits.maven.md.Markdowns.NO_TITLE;
 
 /**
@@ -43,4 +48,20 @@ public class MarkdownsTest {
     public void testGetTitle_AtxEmptyFile() throws Exception {
         Assert.assertEquals(NO_TITLE, Markdowns.getTitle("# "));
     }
+
+    @Test
+    public void testAddTerms() throws Exception {
+        List<String> terms = new ArrayList<>();
+        Markdowns.addTerms("Maven's md-plugin: x 1.0 \u00c9t\u00e9 " + Strings.repeat("a", 33), terms);
+        Assert.assertEquals(Arrays.asList("maven", "md", "plugin", "\u00e9t\u00e9"), terms);
+    }
+
+    @Test
+    public void testEscapeJson() throws Exception {
+        Assert.assertEquals("guide.md", Markdowns.escapeJson("guide.md"));
+        Assert.assertEquals("a \\\"quoted\\\" name", Markdowns.escapeJson("a \"quoted\" name"));
+        Assert.assertEquals("docs\\\\guide.md", Markdowns.escapeJson("docs\\guide.md"));
+        Assert.assertEquals("line\\u000afeed\\u0009tab\\u0001", Markdowns.escapeJson("line\nfeed\ttab\u0001"));
+        Assert.assertEquals("caf\u00e9 \u007f", Markdowns.escapeJson("caf\u00e9 \u007f"));
+    }
 }
@@ -0,0 +1,197 @@
+package org.javabits.maven.md;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Configure the mojos outside of Maven for the tests exercising a whole generation.
+ * The parameters are set to the default values declared in the plugin descriptor of the build, and the ones
+ * depending on the project are set to the test directories. The project is left unset, as it's only handed
+ * to the project helper attaching the archive, which does nothing.
+ *
+ * @author Romain Gilles
+ */
+final class Mojos {
+
+    private static final String PLUGIN_DESCRIPTOR = "/META-INF/maven/plugin.xml";
+    private static final String EXPRESSION_START = "${";
+
+    private Mojos() {
+        throw new AssertionError("not for you!");
+    }
+
+    /**
+     * @param mojo the mojo to configure.
+     * @param goal the goal of the mojo in the plugin descriptor.
+     * @return the mojo configured with the default values of its parameters.
+     */
+    static <T extends AbstractMarkdownMojo> T newMojo(T mojo, String goal, File sources, File buildDirectory) {
+        mojo.setLog(new QuietLog());
+        for (Map.Entry<String, String> defaultValue : getDefaultValues(goal).entrySet()) {
+            if (!defaultValue.getValue().contains(EXPRESSION_START)) {
+                set(mojo, defaultValue.getKey(), defaultValue.getValue());
+            }
+        }
+        set(mojo, "sources", sources);
+        set(mojo, "outputDir", new File(buildDirectory, "docs"));
+        set(mojo, "targetName", "test-docs");
+        set(mojo, "projectBuildDirectory", buildDirectory);
+        set(mojo, "finalName", "test");
+        set(mojo, "reportTop", 0);
+        set(mojo, "projectHelper", new NoopProjectHelper());
+        return mojo;
+    }
+
+    /**
+     * @return the default values of the parameters of the given goal declared in the plugin descriptor,
+     * by field name.
+     */
+    static Map<String, String> getDefaultValues(String goal) {
+        Document descriptor;
+        try (InputStream input = Mojos.class.getResourceAsStream(PLUGIN_DESCRIPTOR)) {
+            if (input == null) {
+                throw new IllegalStateException("Plugin descriptor not found: " + PLUGIN_DESCRIPTOR);
+            }
+            descriptor = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+        } catch (IOException | ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Cannot read the plugin descriptor: " + PLUGIN_DESCRIPTOR, e);
+        }
+        NodeList mojos = descriptor.getElementsByTagName("mojo");
+        for (int i = 0; i < mojos.getLength(); i++) {
+            Element mojo = (Element) mojos.item(i);
+            if (goal.equals(getChildText(mojo, "goal"))) {
+                Map<String, String> defaultValues = new TreeMap<>();
+                Element configuration = getChild(mojo, "configuration");
+                if (configuration == null) {
+                    return defaultValues;
+                }
+                NodeList parameters = configuration.getChildNodes();
+                for (int j = 0; j < parameters.getLength(); j++) {
+                    if (parameters.item(j) instanceof Element) {
+                        Element parameter = (Element) parameters.item(j);
+                        if (parameter.hasAttribute("default-value")) {
+                            defaultValues.put(parameter.getTagName(), parameter.getAttribute("default-value"));
+                        }
+                    }
+                }
+                return defaultValues;
+            }
+        }
+        throw new IllegalArgumentException("Unknown goal: " + goal);
+    }
+
+    private static Element getChild(Element element, String name) {
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (children.item(i) instanceof Element && name.equals(((Element) children.item(i)).getTagName())) {
+                return (Element) children.item(i);
+            }
+        }
+        return null;
+    }
+
+    private static String getChildText(Element element, String name) {
+        Element child = getChild(element, name);
+        return child != null ? child.getTextContent().trim() : null;
+    }
+
+    /**
+     * Set a parameter of the mojo, a {@code String} value is converted to the type of the field.
+     */
+    static void set(Object mojo, String name, Object value) {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value instanceof String ? convert((String) value, field.getType()) : value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // look up the parent class
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot set the mojo parameter: " + name, e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown mojo parameter: " + name);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == long.class || type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == File.class) {
+            return new File(value);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+        throw new IllegalArgumentException("Unsupported parameter type: " + type.getName());
+    }
+
+    static class QuietLog extends SystemStreamLog {
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+        }
+    }
+
+    private static class NoopProjectHelper implements MavenProjectHelper {
+        @Override
+        public void attachArtifact(MavenProject project, File artifactFile, String artifactClassifier) {
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, String artifactType, File artifactFile) {
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, String artifactType, String artifactClassifier, File artifactFile) {
+        }
+
+        @Override
+        public void addResource(MavenProject project, String resourceDirectory, List includes, List excludes) {
+        }
+
+        @Override
+        public void addTestResource(MavenProject project, String resourceDirectory, List includes, List excludes) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class NavigationTest {
+
+    private static final String HTML = "<ul><li><a href=\"index.html\">Home</a></li>"
+            + "<li><a href=\"user-guide/user-guide.html#install\">Install</a></li>"
+            + "<li><a href=\"http://javabits.org\">Site</a> <a href=\"#top\">Top</a></li>"
+            + "<li><img src=\"icon.gif\" alt=\"icon\"/></li></ul>";
+
+    @Test
+    public void testGetHtmlAtRoot() throws Exception {
+        Navigation navigation = Navigation.compile("table-content.html", HTML);
+        assertThat(navigation.getHtml(), is(HTML));
+        assertThat(navigation.getHtml("index.html"), is(HTML));
+    }
+
+    @Test
+    public void testGetHtmlInDirectory() throws Exception {
+        Navigation navigation = Navigation.compile("table-content.html", HTML);
+        String html = "<ul><li><a href=\"../index.html\">Home</a></li>"
+                + "<li><a href=\"user-guide.html#install\">Install</a></li>"
+                + "<li><a href=\"http://javabits.org\">Site</a> <a href=\"#top\">Top</a></li>"
+                + "<li><img src=\"../icon.gif\" alt=\"icon\"/></li></ul>";
+        assertThat(navigation.getHtml("user-guide/user-guide.html"), is(html));
+        assertThat(navigation.getHtml("user-guide/other.html"), is(html));
+    }
+
+    @Test
+    public void testGetHtmlFromDirectory() throws Exception {
+        Navigation navigation = Navigation.compile("guide/nav.html", "<a href=\"../index.html\">Home</a><a href=\"api/\">API</a>");
+        assertThat(navigation.getHtml("index.html"), is("<a href=\"index.html\">Home</a><a href=\"guide/api/\">API</a>"));
+        assertThat(navigation.getHtml("guide/api/index.html"), is("<a href=\"../../index.html\">Home</a><a href=\"../api/\">API</a>"));
+    }
+}
@@ -0,0 +1,57 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class PageCacheTest {
+
+    @Test
+    public void testGet() throws Exception {
+        PageCache cache = new PageCache(100);
+        byte[] page = new byte[10];
+        cache.put("index.md", "10:1", page);
+        assertThat(cache.get("index.md", "10:1"), is(page));
+        assertThat(cache.get("index.md", "12:2"), nullValue());
+        assertThat(cache.get("guide.md", "10:1"), nullValue());
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(2L));
+    }
+
+    @Test
+    public void testPutReplace() throws Exception {
+        PageCache cache = new PageCache(100);
+        cache.put("index.md", "10:1", new byte[10]);
+        byte[] page = new byte[20];
+        cache.put("index.md", "12:2", page);
+        assertThat(cache.get("index.md", "12:2"), is(page));
+        assertThat(cache.getSize(), is(20L));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        PageCache cache = new PageCache(100);
+        cache.put("a.md", "a", new byte[40]);
+        cache.put("b.md", "b", new byte[40]);
+        cache.get("a.md", "a");
+        cache.put("c.md", "c", new byte[40]);
+        assertThat(cache.get("b.md", "b"), nullValue());
+        assertThat(cache.get("a.md", "a").length, is(40));
+        assertThat(cache.get("c.md", "c").length, is(40));
+        assertThat(cache.getSize(), is(80L));
+    }
+
+    @Test
+    public void testPutLargerThanCache() throws Exception {
+        PageCache cache = new PageCache(100);
+        cache.put("a.md", "a", new byte[40]);
+        cache.put("big.md", "big", new byte[101]);
+        assertThat(cache.get("big.md", "big"), nullValue());
+        assertThat(cache.get("a.md", "a").length, is(40));
+    }
+}
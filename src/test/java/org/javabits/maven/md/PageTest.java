@@ -0,0 +1,61 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class PageTest {
+
+    @Test
+    public void testPreformatted() throws Exception {
+        Page page = Page.preformatted("# The Title\n\n*a **b <i>c</i> & d\n".toCharArray());
+        assertThat(page.getTitle(), is("The Title"));
+        assertThat(page.getHtml(), is("<pre># The Title\n\n*a **b &lt;i&gt;c&lt;/i&gt; &amp; d\n</pre>\n"));
+        assertThat(page.getHeadings().isEmpty(), is(true));
+        assertThat(page.getLinks().isEmpty(), is(true));
+        assertThat(page.getTerms(), is(Arrays.asList("the", "title")));
+    }
+
+    @Test
+    public void testGetTableOfContents() throws Exception {
+        Page page = new Page("A", "", Arrays.asList(new Heading(1, "A", "a"), new Heading(2, "B", "b"), new Heading(3, "C", "c"),
+                new Heading(2, "D", "d"), new Heading(1, "E", "e")));
+        assertThat(page.getTableOfContents(), is("<ul class=\"toc\">\n"
+                + "<li><a href=\"#a\">A</a>\n<ul>\n"
+                + "<li><a href=\"#b\">B</a>\n<ul>\n"
+                + "<li><a href=\"#c\">C</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "<li><a href=\"#d\">D</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "<li><a href=\"#e\">E</a></li>\n"
+                + "</ul>\n"));
+    }
+
+    @Test
+    public void testGetTableOfContentsWithSkippedLevel() throws Exception {
+        Page page = new Page("A", "", Arrays.asList(new Heading(1, "A", "a"), new Heading(3, "C", "c"), new Heading(2, "B", "b")));
+        assertThat(page.getTableOfContents(), is("<ul class=\"toc\">\n"
+                + "<li><a href=\"#a\">A</a>\n<ul>\n"
+                + "<li><a href=\"#c\">C</a></li>\n"
+                + "<li><a href=\"#b\">B</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "</ul>\n"));
+    }
+
+    @Test
+    public void testGetTableOfContentsStartingDeeper() throws Exception {
+        Page page = new Page("B", "", Arrays.asList(new Heading(2, "B", "b"), new Heading(1, "A", "a"), new Heading(2, "C", "c")));
+        assertThat(page.getTableOfContents(), is("<ul class=\"toc\">\n"
+                + "<li><a href=\"#b\">B</a></li>\n"
+                + "<li><a href=\"#a\">A</a>\n<ul>\n"
+                + "<li><a href=\"#c\">C</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "</ul>\n"));
+    }
+}
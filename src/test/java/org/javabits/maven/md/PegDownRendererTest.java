@@ -0,0 +1,120 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+import org.pegdown.Extensions;
+import org.pegdown.PegDownProcessor;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Romain Gilles
+ */
+public class PegDownRendererTest {
+
+    private static final String EXPECTED_TITLE = "The Title";
+
+    private final PegDownRenderer renderer = new PegDownRenderer(Extensions.NONE, "md", PegDownProcessor.DEFAULT_MAX_PARSING_TIME);
+
+    @Test
+    public void testRenderSetextTitle() throws Exception {
+        Page page = renderer.render(Resources.toString("/test-empty-first-lines.md").toCharArray());
+        assertThat(page.getTitle(), is(EXPECTED_TITLE));
+        assertThat(page.getHeadings().size(), is(3));
+        assertThat(page.getHeadings().get(1).getLevel(), is(2));
+        assertThat(page.getHeadings().get(1).getId(), is("an-header"));
+        assertThat(page.getHtml(), containsString("<h1 id=\"the-title\">The Title</h1>"));
+    }
+
+    @Test
+    public void testRenderAtxTitle() throws Exception {
+        Page page = renderer.render("# The *Title*\n\nbla bla bla\n".toCharArray());
+        assertThat(page.getTitle(), is(EXPECTED_TITLE));
+    }
+
+    @Test
+    public void testRenderWithoutHeading() throws Exception {
+        Page page = renderer.render("\nbla bla bla\nbla bla\n".toCharArray());
+        assertThat(page.getTitle(), is("bla bla bla"));
+        assertThat(page.getTableOfContents(), is(""));
+    }
+
+    @Test
+    public void testRenderEmptyFile() throws Exception {
+        assertThat(renderer.render("".toCharArray()).getTitle(), is(Markdowns.NO_TITLE));
+    }
+
+    @Test
+    public void testRenderDuplicateHeadings() throws Exception {
+        Page page = renderer.render("# Title\n\n## Part\n\n## Part\n".toCharArray());
+        assertThat(page.getHeadings().get(2).getId(), is("part-1"));
+    }
+
+    @Test
+    public void testTableOfContents() throws Exception {
+        Page page = renderer.render("# Title\n\n## Part 1\n\n### Sub: Q&A\n\n## Part 2\n".toCharArray());
+        assertThat(page.getTableOfContents(), is("<ul class=\"toc\">\n"
+                + "<li><a href=\"#title\">Title</a>\n"
+                + "<ul>\n"
+                + "<li><a href=\"#part-1\">Part 1</a>\n"
+                + "<ul>\n"
+                + "<li><a href=\"#sub-q-a\">Sub: Q&amp;A</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "<li><a href=\"#part-2\">Part 2</a></li>\n"
+                + "</ul>\n</li>\n"
+                + "</ul>\n"));
+    }
+
+    @Test
+    public void testRenderLinks() throws Exception {
+        Page page = renderer.render(("[guide](guide.md#install) [ref][1] [site](http://javabits.org/a.md)\n\n"
+                + "[1]: ../api/index.md\n").toCharArray());
+        assertThat(page.getHtml(), containsString("href=\"guide.html#install\""));
+        assertThat(page.getHtml(), containsString("href=\"../api/index.html\""));
+        assertThat(page.getHtml(), containsString("href=\"http://javabits.org/a.md\""));
+        assertThat(page.getLinks(), is(Arrays.asList("guide.html#install", "../api/index.html", "http://javabits.org/a.md")));
+    }
+
+    @Test
+    public void testRenderTerms() throws Exception {
+        Page page = renderer.render("# The Title\n\nSee the `getTitle()` [guide](guide.md), a <b>bold</b> move.\n\n    int x = 42;\n".toCharArray());
+        assertThat(page.getTerms(), is(Arrays.asList("42", "bold", "gettitle", "guide", "int", "move", "see", "the", "title")));
+    }
+
+    @Test(expected = RenderingTimeoutException.class)
+    public void testRenderTimeout() throws Exception {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            document.append("*a **b ");
+        }
+        new PegDownRenderer(Extensions.NONE, "md", 1).render(document.toString().toCharArray());
+    }
+
+    @Test
+    public void testRenderTooDeeplyNested() throws Exception {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            document.append('[');
+        }
+        try {
+            new PegDownRenderer(Extensions.NONE, "md", 0).render(document.toString().toCharArray());
+            fail("The document should be too deeply nested");
+        } catch (RenderingTimeoutException e) {
+            fail("The document should not time out: " + e.getMessage());
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), is("the document is too deeply nested for the parser stack"));
+        }
+    }
+
+    @Test
+    public void testRenderWithoutTimeout() throws Exception {
+        for (long parseTimeout : new long[]{0, -1}) {
+            Page page = new PegDownRenderer(Extensions.NONE, "md", parseTimeout).render("# Title\n\n*a* **b**".toCharArray());
+            assertThat(page.getTitle(), is("Title"));
+        }
+    }
+}
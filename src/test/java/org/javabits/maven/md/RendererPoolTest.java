@@ -0,0 +1,47 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+import org.pegdown.Extensions;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Romain Gilles
+ */
+public class RendererPoolTest {
+
+    @Test
+    public void testOf() throws Exception {
+        RendererPool pool = RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.TABLES, "md", 2000, 2);
+        assertThat(RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.TABLES, "md", 2000, 2), sameInstance(pool));
+        assertThat(RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.NONE, "md", 2000, 2), not(sameInstance(pool)));
+        assertThat(RendererPool.of(MarkdownRenderer.Engine.PEGDOWN, Extensions.TABLES, "md", 2000, 2), not(sameInstance(pool)));
+        assertThat(RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.TABLES, "markdown", 2000, 2), not(sameInstance(pool)));
+        assertThat(RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.TABLES, "md", 100, 2), not(sameInstance(pool)));
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        RendererPool pool = RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.AUTOLINKS, "md", 2000, 2);
+        MarkdownRenderer renderer = pool.acquire();
+        MarkdownRenderer otherRenderer = pool.acquire();
+        assertThat(otherRenderer, not(sameInstance(renderer)));
+        pool.release(renderer);
+        assertThat(pool.acquire(), sameInstance(renderer));
+    }
+
+    @Test
+    public void testReleaseSurplus() throws Exception {
+        RendererPool pool = RendererPool.of(MarkdownRenderer.Engine.COMMONMARK, Extensions.TABLES, "mdown", 2000, 1);
+        MarkdownRenderer renderer = pool.acquire();
+        MarkdownRenderer otherRenderer = pool.acquire();
+        pool.release(renderer);
+        pool.release(otherRenderer);
+        assertThat(pool.acquire(), sameInstance(renderer));
+        MarkdownRenderer newRenderer = pool.acquire();
+        assertThat(newRenderer, not(sameInstance(renderer)));
+        assertThat(newRenderer, not(sameInstance(otherRenderer)));
+    }
+}
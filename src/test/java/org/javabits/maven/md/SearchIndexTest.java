@@ -0,0 +1,77 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class SearchIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Page page(String title, String... terms) {
+        return new Page(title, "", Collections.<Heading>emptyList(), Collections.<String>emptyList(), Arrays.asList(terms));
+    }
+
+    @Test
+    public void testGetShard() throws Exception {
+        assertThat(SearchIndex.getShard("maven"), is("ma"));
+        assertThat(SearchIndex.getShard("42"), is("42"));
+        assertThat(SearchIndex.getShard("mé"), is("m"));
+        assertThat(SearchIndex.getShard("été"), is("_e9"));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        File directory = new File(folder.getRoot(), SearchIndex.DIRECTORY);
+        SearchIndex index = SearchIndex.empty(folder.newFile(), "settings");
+        index.addPage("index.md", page("Home \"page\"", "maven", "plugin"));
+        index.addPage("guide" + File.separator + "install.md", page("Install", "install", "maven"));
+        index.addPage("about.md", page("About", "maven", "md"));
+        List<File> files = index.write(directory);
+        assertThat(files, is(Arrays.asList(new File(directory, "documents.json"), new File(directory, "in.json"),
+                new File(directory, "ma.json"), new File(directory, "md.json"), new File(directory, "pl.json"))));
+        assertThat(Files.toString(files.get(0), Charsets.UTF_8),
+                is("[\n[\"about.html\",\"About\"],\n[\"guide/install.html\",\"Install\"],\n[\"index.html\",\"Home \\\"page\\\"\"]\n]\n"));
+        assertThat(Files.toString(files.get(2), Charsets.UTF_8), is("{\n\"maven\":[0,1,1]\n}\n"));
+        assertThat(Files.toString(files.get(4), Charsets.UTF_8), is("{\n\"plugin\":[2]\n}\n"));
+    }
+
+    @Test
+    public void testIncrementalWrite() throws Exception {
+        File file = folder.newFile();
+        File directory = new File(folder.getRoot(), SearchIndex.DIRECTORY);
+        SearchIndex index = SearchIndex.empty(file, "settings");
+        index.addPage("index.md", page("Home", "maven"));
+        index.addPage("about.md", page("About", "plugin"));
+        index.write(directory);
+        index.store();
+
+        SearchIndex loadedIndex = SearchIndex.load(file, "settings");
+        assertThat(loadedIndex.reusePage("index.md"), is(true));
+        assertThat(loadedIndex.reusePage("other.md"), is(false));
+        // about.md is removed, its shard is deleted
+        assertThat(loadedIndex.write(directory), is(Arrays.asList(new File(directory, "documents.json"), new File(directory, "ma.json"))));
+        loadedIndex.store();
+
+        SearchIndex unchangedIndex = SearchIndex.load(file, "settings");
+        assertThat(unchangedIndex.reusePage("index.md"), is(true));
+        File documentsFile = new File(directory, "documents.json");
+        assertThat(documentsFile.setLastModified(0), is(true));
+        unchangedIndex.write(directory);
+        assertThat(documentsFile.lastModified(), is(0L));
+    }
+}
@@ -0,0 +1,125 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class ServeMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private File template;
+    private File secret;
+    private ServeMojo mojo;
+    private HttpServer server;
+
+    private static void write(File file, String content) throws Exception {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        sources = folder.newFolder("md");
+        write(new File(sources, "index.md"), "# Index\n");
+        write(new File(sources, "guide/guide.md"), "# Guide\n");
+        write(new File(sources, "table-content.md"), "[Guide](guide/guide.html)\n");
+        write(new File(sources, "images/logo.png"), "logo");
+        template = folder.newFile("template.html");
+        write(template, "<title>v1</title>${nav}${content}");
+        secret = folder.newFile("secret.txt");
+        write(secret, "secret");
+        mojo = Mojos.newMojo(new ServeMojo(), "serve", sources, folder.newFolder("target"));
+        Mojos.set(mojo, "port", 0);
+        Mojos.set(mojo, "template", template);
+        server = mojo.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mojo.stop(server);
+    }
+
+    private String get(String path, int status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", server.getAddress().getPort(), path).openConnection();
+        try {
+            assertThat(path, connection.getResponseCode(), is(status));
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new String(ByteStreams.toByteArray(body), Charsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testServe() throws Exception {
+        assertThat(get("/", 200), containsString(">Index</h1>"));
+        assertThat(get("/guide/guide.html", 200), containsString(">Guide</h1>"));
+        assertThat(get("/guide/guide.html", 200), containsString("<a href=\"guide.html\">Guide</a>"));
+        assertThat(get("/images/logo.png", 200), is("logo"));
+        assertThat(get("/base.css", 200).isEmpty(), is(false));
+    }
+
+    @Test
+    public void testServeNotFound() throws Exception {
+        get("/missing.html", 404);
+        get("/images/missing.png", 404);
+        get("/index.md", 404);
+    }
+
+    @Test
+    public void testServeOutsideSources() throws Exception {
+        get("/../secret.txt", 404);
+        get("/images/../../secret.txt", 404);
+        get("/%2e%2e/secret.txt", 404);
+        // the encoded separators are decoded into an absolute path
+        String absolutePath = secret.getAbsolutePath().replace(File.separatorChar, '/').replace("/", "%2F");
+        get("/" + absolutePath, 404);
+        get("/" + absolutePath.replace(".txt", ".html"), 404);
+    }
+
+    @Test
+    public void testServeCachedPage() throws Exception {
+        String page = get("/index.html", 200);
+        assertThat(get("/index.html", 200), is(page));
+        assertThat(mojo.getPageCache().getMisses(), is(1L));
+        assertThat(mojo.getPageCache().getHits(), is(1L));
+    }
+
+    @Test
+    public void testServeModifiedPage() throws Exception {
+        assertThat(get("/index.html", 200), containsString(">Index</h1>"));
+        write(new File(sources, "index.md"), "# Modified index\n");
+        assertThat(get("/index.html", 200), containsString(">Modified index</h1>"));
+        write(template, "<title>version 2</title>${nav}${content}");
+        assertThat(get("/index.html", 200), containsString("<title>version 2</title>"));
+        write(new File(sources, "table-content.md"), "[User guide](guide/guide.html)\n");
+        String page = get("/index.html", 200);
+        assertThat(page, containsString("<a href=\"guide/guide.html\">User guide</a>"));
+        assertThat(page, not(containsString(">Guide</a>")));
+        assertThat(mojo.getPageCache().getHits(), is(0L));
+    }
+}
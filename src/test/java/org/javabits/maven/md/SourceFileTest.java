@@ -0,0 +1,48 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class SourceFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRead() throws Exception {
+        assertRead("# The Title\n\nbla bla \u00e9\n");
+    }
+
+    @Test
+    public void testReadMapped() throws Exception {
+        assertRead(Strings.repeat("bla bla \u00e9\n", (int) (SourceFile.MAPPED_THRESHOLD / 8)));
+    }
+
+    @Test
+    public void testDecodeMalformedInput() throws Exception {
+        byte[] content = {'a', (byte) 0xff, 'b'};
+        assertThat(new String(SourceFile.decode(ByteBuffer.wrap(content), Charsets.UTF_8)), is(new String(content, Charsets.UTF_8)));
+    }
+
+    private void assertRead(String document) throws Exception {
+        File file = folder.newFile("test.md");
+        Files.write(document, file, Charsets.UTF_8);
+        ByteBuffer content = SourceFile.read(file);
+        assertThat(content.remaining(), is((int) file.length()));
+        assertThat(BuildManifest.fingerprint(content), is(BuildManifest.HASH_FUNCTION.hashBytes(Files.toByteArray(file)).toString()));
+        assertThat(new String(SourceFile.decode(content, Charsets.UTF_8)), is(document));
+    }
+}
@@ -0,0 +1,128 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class SourceRootsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SourceRoots roots;
+
+    @Before
+    public void setUp() throws Exception {
+        write("root/index.md", "# Root");
+        write("a/index.md", "# A");
+        write("a/icon.gif", "GIF89a");
+        write("b/guide.md", "# B");
+        Map<String, SourceScanner> scanners = new LinkedHashMap<>();
+        scanners.put("", newScanner("root"));
+        scanners.put("a", newScanner("a"));
+        scanners.put("modules" + File.separator + "b", newScanner("b"));
+        scanners.put("missing", newScanner("missing"));
+        roots = new SourceRoots(scanners);
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(folder.getRoot(), path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    private SourceScanner newScanner(String directory) {
+        return new SourceScanner(new File(folder.getRoot(), directory).toPath(), new String[]{"**/*"}, new String[0], true, "md");
+    }
+
+    private static String path(String path) {
+        return path.replace('/', File.separatorChar);
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        final Map<String, Boolean> found = new TreeMap<>();
+        int count = roots.scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                found.put(includedFile, document);
+                return true;
+            }
+        });
+        assertThat(count, is(4));
+        assertThat(found.get(path("index.md")), is(true));
+        assertThat(found.get(path("a/index.md")), is(true));
+        assertThat(found.get(path("a/icon.gif")), is(false));
+        assertThat(found.get(path("modules/b/guide.md")), is(true));
+    }
+
+    @Test
+    public void testScanStopped() throws Exception {
+        final Map<String, Boolean> found = new TreeMap<>();
+        int count = roots.scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                found.put(includedFile, document);
+                return !includedFile.startsWith("a");
+            }
+        });
+        assertThat(count, is(2));
+        // the roots are walked from the longest prefix, the root directory is not
+        assertThat(found.keySet().toString(), is("[" + path("a/icon.gif") + ", " + path("modules/b/guide.md") + "]"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testScanOverlap() throws Exception {
+        write("root/a/guide.md", "# Root A");
+        roots.scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testContains() throws Exception {
+        assertThat(roots.contains(path("index.md")), is(true));
+        assertThat(roots.contains(path("a/../a/icon.gif")), is(true));
+        assertThat(roots.contains(path("modules/b/guide.md")), is(true));
+        assertThat(roots.contains(path("../a/index.md")), is(false));
+        assertThat(roots.contains(path("a/../b/guide.md")), is(false));
+        assertThat(roots.contains(new File(folder.getRoot(), path("b/guide.md")).getAbsolutePath()), is(false));
+    }
+
+    @Test
+    public void testGetFile() throws Exception {
+        assertThat(roots.getFile(path("index.md")), is(new File(folder.getRoot(), path("root/index.md"))));
+        assertThat(roots.getFile(path("a/icon.gif")), is(new File(folder.getRoot(), path("a/icon.gif"))));
+        assertThat(roots.getFile(path("modules/b/guide.md")), is(new File(folder.getRoot(), path("b/guide.md"))));
+        assertThat(roots.getFile(path("modules/guide.md")), is(new File(folder.getRoot(), path("root/modules/guide.md"))));
+        assertThat(roots.isDocument(path("a/icon.gif")), is(false));
+        assertThat(roots.isDocument(path("modules/b/guide.md")), is(true));
+    }
+
+    @Test
+    public void testExists() throws Exception {
+        assertThat(roots.exists(), is(true));
+        assertThat(SourceRoots.of(newScanner("missing")).exists(), is(false));
+        assertThat(SourceRoots.of(newScanner("missing")).getFile("index.md"), is(new File(folder.getRoot(), path("missing/index.md"))));
+        assertThat(new SourceRoots(new LinkedHashMap<String, SourceScanner>()).getFile("index.md"), nullValue());
+    }
+}
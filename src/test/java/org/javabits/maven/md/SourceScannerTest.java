@@ -0,0 +1,132 @@
+package org.javabits.maven.md;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class SourceScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        for (String file : Arrays.asList("index.md", "index.md~", "logo.png", ".git/config", ".git/objects/00/file",
+                "guide/install.md", "guide/image.png", "drafts/todo.md", "drafts/old/notes.md")) {
+            File target = new File(folder.getRoot(), file.replace('/', File.separatorChar));
+            assertThat(target.getParentFile().isDirectory() || target.getParentFile().mkdirs(), is(true));
+            assertThat(target.createNewFile(), is(true));
+        }
+    }
+
+    private List<String> scan(SourceScanner scanner) throws Exception {
+        final List<String> files = new ArrayList<>();
+        int count = scanner.scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                files.add((document ? "d:" : "r:") + includedFile.replace(File.separatorChar, '/'));
+                return true;
+            }
+        });
+        assertThat(count, is(files.size()));
+        Collections.sort(files);
+        return files;
+    }
+
+    private List<String> directoryScan(String[] includes, String[] excludes) {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(folder.getRoot());
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        List<String> files = new ArrayList<>();
+        for (String file : scanner.getIncludedFiles()) {
+            files.add((file.endsWith(".md") ? "d:" : "r:") + file.replace(File.separatorChar, '/'));
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        String[] includes = {"**/*"};
+        String[] excludes = {"drafts/"};
+        List<String> files = scan(new SourceScanner(folder.getRoot().toPath(), includes, excludes, true, "md"));
+        assertThat(files, is(Arrays.asList("d:guide/install.md", "d:index.md", "r:guide/image.png", "r:logo.png")));
+        assertThat(files, is(directoryScan(includes, excludes)));
+    }
+
+    @Test
+    public void testScanIncludes() throws Exception {
+        String[] includes = {"**/*.md", "drafts/**/*.png"};
+        String[] excludes = {"**/old/**"};
+        List<String> files = scan(new SourceScanner(folder.getRoot().toPath(), includes, excludes, true, "md"));
+        assertThat(files, is(Arrays.asList("d:drafts/todo.md", "d:guide/install.md", "d:index.md")));
+        assertThat(files, is(directoryScan(includes, excludes)));
+    }
+
+    @Test
+    public void testScanOrder() throws Exception {
+        for (String file : Arrays.asList("guide-old.md", "guide0.md", "guide/a/deep.md")) {
+            File target = new File(folder.getRoot(), file.replace('/', File.separatorChar));
+            assertThat(target.getParentFile().isDirectory() || target.getParentFile().mkdirs(), is(true));
+            assertThat(target.createNewFile(), is(true));
+        }
+        final List<String> files = new ArrayList<>();
+        new SourceScanner(folder.getRoot().toPath(), new String[]{"**/*"}, new String[]{"drafts/"}, true, "md").scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                files.add(includedFile);
+                return true;
+            }
+        });
+        List<String> sortedFiles = new ArrayList<>(files);
+        Collections.sort(sortedFiles);
+        assertThat(files, is(sortedFiles));
+        assertThat(files.size(), is(7));
+    }
+
+    @Test
+    public void testScanStopped() throws Exception {
+        final List<String> files = new ArrayList<>();
+        int count = new SourceScanner(folder.getRoot().toPath(), new String[]{"**/*.md"}, new String[0], true, "md").scan(new SourceScanner.Listener() {
+            @Override
+            public boolean found(String includedFile, boolean document) {
+                files.add(includedFile.replace(File.separatorChar, '/'));
+                return files.size() < 2;
+            }
+        });
+        assertThat(count, is(2));
+        assertThat(files, is(Arrays.asList("drafts/old/notes.md", "drafts/todo.md")));
+    }
+
+    @Test
+    public void testScanWithoutDefaultExcludes() throws Exception {
+        SourceScanner scanner = new SourceScanner(folder.getRoot().toPath(), new String[]{".git/*", "*.md~"}, new String[0], false, "md");
+        assertThat(scan(scanner), is(Arrays.asList("r:.git/config", "r:index.md~")));
+    }
+
+    @Test
+    public void testIsIncluded() throws Exception {
+        SourceScanner scanner = new SourceScanner(folder.getRoot().toPath(), new String[]{"**/*"}, new String[]{"drafts/"}, true, "md");
+        assertThat(scanner.isIncluded("guide" + File.separator + "install.md"), is(true));
+        assertThat(scanner.isIncluded("drafts" + File.separator + "todo.md"), is(false));
+        assertThat(scanner.isIncluded(".git" + File.separator + "config"), is(false));
+        assertThat(scanner.isIncluded("index.md~"), is(false));
+    }
+}
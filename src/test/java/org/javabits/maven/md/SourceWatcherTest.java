@@ -0,0 +1,81 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class SourceWatcherTest {
+
+    private static final long TIMEOUT = 10000;
+    private static final long DEBOUNCE = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SourceWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        write("index.md", "# Index");
+        write("guide/guide.md", "# Guide");
+        watcher = new SourceWatcher(folder.getRoot().toPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.close();
+    }
+
+    private Path write(String path, String content) throws Exception {
+        File file = new File(folder.getRoot(), path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+        return file.toPath();
+    }
+
+    @Test
+    public void testPollNothingModified() throws Exception {
+        assertThat(watcher.poll(100, DEBOUNCE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPollModifiedFiles() throws Exception {
+        Path index = write("index.md", "# Modified index");
+        Path guide = write("guide/guide.md", "# Modified guide");
+        Set<Path> modifiedFiles = watcher.poll(TIMEOUT, DEBOUNCE);
+        assertThat(modifiedFiles.contains(index), is(true));
+        assertThat(modifiedFiles.contains(guide), is(true));
+        assertThat(watcher.poll(100, DEBOUNCE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPollDeletedFile() throws Exception {
+        File index = new File(folder.getRoot(), "index.md");
+        assertThat(index.delete(), is(true));
+        assertThat(watcher.poll(TIMEOUT, DEBOUNCE).contains(index.toPath()), is(true));
+    }
+
+    @Test
+    public void testPollCreatedDirectory() throws Exception {
+        Path page = write("new/deep/page.md", "# Page");
+        // the files written with the directory are found whether their events are received or not
+        assertThat(watcher.poll(TIMEOUT, DEBOUNCE).contains(page), is(true));
+        // the created directories are watched
+        page = write("new/deep/page.md", "# Modified page");
+        assertThat(watcher.poll(TIMEOUT, DEBOUNCE).contains(page), is(true));
+    }
+}
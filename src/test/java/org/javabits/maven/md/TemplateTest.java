@@ -0,0 +1,60 @@
+package org.javabits.maven.md;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class TemplateTest {
+
+    @Test
+    public void testMerge() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put(Template.TITLE, "The Title");
+        values.put(Template.CONTENT, "<p>content</p>");
+        assertThat(merge("<title>${title}</title><body>${content}</body>", values), is("<title>The Title</title><body><p>content</p></body>"));
+    }
+
+    @Test
+    public void testForSource() throws Exception {
+        String source = "<title>${title}</title>";
+        assertThat(Template.forSource(source), sameInstance(Template.forSource(new String(source))));
+    }
+
+    @Test
+    public void testMergeWithoutValue() throws Exception {
+        assertThat(merge("<link href=\"${css}\">", new HashMap<String, String>()), is("<link href=\"${css}\">"));
+    }
+
+    @Test
+    public void testMergeUnclosedVariable() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put(Template.TITLE, "The Title");
+        assertThat(merge("${title} ${content", values), is("The Title ${content"));
+    }
+
+    @Test
+    public void testMergeBundledTemplate() throws Exception {
+        String template = Resources.toString("/file-template.html");
+        Map<String, String> values = new HashMap<>();
+        values.put(Template.TITLE, "The Title");
+        values.put(Template.CSS, "base.css");
+        values.put(Template.CONTENT, "<p>content</p>");
+        String expected = template.replace("${title}", "The Title").replace("${css}", "base.css").replace("${content}", "<p>content</p>");
+        assertThat(merge(template, values), is(expected));
+    }
+
+    private static String merge(String template, Map<String, String> values) throws Exception {
+        StringWriter writer = new StringWriter();
+        Template.compile(template).merge(values, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package org.javabits.maven.md;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Romain Gilles
+ */
+public class WatchMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private File docs;
+    private WatchMojo mojo;
+    private AbstractMarkdownMojo.Generation generation;
+
+    private static void write(File file, String content) throws Exception {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        sources = folder.newFolder("md");
+        write(new File(sources, "index.md"), "# Index\n");
+        write(new File(sources, "guide/guide.md"), "# Guide\n");
+        write(new File(sources, "table-content.md"), "[Guide](guide/guide.html)\n");
+        File template = folder.newFile("template.html");
+        write(template, "${nav}${content}");
+        File build = folder.newFolder("target");
+        docs = new File(build, "docs");
+        mojo = Mojos.newMojo(new WatchMojo(), "watch", sources, build);
+        Mojos.set(mojo, "template", template);
+        generation = mojo.generateDocumentation(false);
+    }
+
+    /**
+     * @return the given generated file, with an old modification time to detect its regeneration.
+     */
+    private File age(String path) {
+        File file = new File(docs, path);
+        assertThat(file.setLastModified(file.lastModified() - 60000), is(true));
+        return file;
+    }
+
+    private AbstractMarkdownMojo.Generation regenerate(String... paths) throws Exception {
+        TreeSet<Path> modifiedFiles = new TreeSet<>();
+        for (String path : paths) {
+            modifiedFiles.add(new File(sources, path).toPath());
+        }
+        return mojo.regenerate(generation, modifiedFiles);
+    }
+
+    @Test
+    public void testRegenerateModifiedFile() throws Exception {
+        File index = age("index.html");
+        long indexTime = index.lastModified();
+        write(new File(sources, "guide/guide.md"), "# Modified guide\n");
+        assertThat(regenerate("guide/guide.md"), is(generation));
+        assertThat(Files.toString(new File(docs, "guide/guide.html"), Charsets.UTF_8), containsString(">Modified guide</h1>"));
+        assertThat(index.lastModified(), is(indexTime));
+    }
+
+    @Test
+    public void testRegenerateCreatedAndDeletedFiles() throws Exception {
+        write(new File(sources, "new/page.md"), "# New page\n");
+        assertThat(new File(sources, "guide/guide.md").delete(), is(true));
+        regenerate("guide/guide.md", "new", "new/page.md");
+        assertThat(Files.toString(new File(docs, "new/page.html"), Charsets.UTF_8), containsString(">New page</h1>"));
+        assertThat(new File(docs, "guide/guide.html").exists(), is(false));
+    }
+
+    @Test
+    public void testRegenerateExcludedFile() throws Exception {
+        File index = age("index.html");
+        long indexTime = index.lastModified();
+        write(new File(sources, "notes.md~"), "# Notes\n");
+        assertThat(regenerate("notes.md~"), is(generation));
+        assertThat(new File(docs, "notes.md~").exists(), is(false));
+        assertThat(index.lastModified(), is(indexTime));
+    }
+
+    @Test
+    public void testRegenerateAllPagesOnNavigation() throws Exception {
+        for (String page : Arrays.asList("index.html", "guide/guide.html")) {
+            assertThat(Files.toString(new File(docs, page), Charsets.UTF_8), containsString(">Guide</a>"));
+        }
+        write(new File(sources, "table-content.md"), "[User guide](guide/guide.html)\n");
+        assertThat(regenerate("table-content.md") != generation, is(true));
+        assertThat(Files.toString(new File(docs, "index.html"), Charsets.UTF_8), containsString("<a href=\"guide/guide.html\">User guide</a>"));
+        assertThat(Files.toString(new File(docs, "guide/guide.html"), Charsets.UTF_8), containsString("<a href=\"guide.html\">User guide</a>"));
+    }
+}